@@ -0,0 +1,139 @@
+package com.afollestad.sectionedrecyclerview;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the position index at up to 100k sections and 10M items. Run with {@code ./gradlew
+ * :benchmarks:jmh}; the gc profiler reports allocation rates next to each score.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PositionManagerBenchmark {
+
+  /** Lookups cycle through this many random targets, a power of two so wrapping is a mask. */
+  private static final int TARGET_COUNT = 1024;
+
+  @Param({"10", "1000", "100000"})
+  int sectionCount;
+
+  @Param({"1", "100"})
+  int itemsPerSection;
+
+  @Param({"false", "true"})
+  boolean showFooters;
+
+  /** Collapses every other section, so lookups go through a mix of section sizes. */
+  @Param({"false", "true"})
+  boolean collapsed;
+
+  private PositionManager positionManager;
+  private ItemProvider itemProvider;
+  private int[] positions;
+  private int[] sections;
+  private int[] relativePositions;
+  private int cursor;
+
+  @Setup
+  public void setup() {
+    itemProvider = new FixedItemProvider(sectionCount, itemsPerSection, showFooters);
+    positionManager = new PositionManager();
+    positionManager.invalidate(itemProvider);
+    if (collapsed) {
+      for (int section = 0; section < sectionCount; section += 2) {
+        positionManager.collapseSection(section);
+      }
+    }
+    int itemCount = positionManager.itemCount(itemProvider);
+
+    Random random = new Random(42);
+    positions = new int[TARGET_COUNT];
+    sections = new int[TARGET_COUNT];
+    relativePositions = new int[TARGET_COUNT];
+    for (int i = 0; i < TARGET_COUNT; i++) {
+      positions[i] = random.nextInt(itemCount);
+      sections[i] = random.nextInt(sectionCount);
+      relativePositions[i] = random.nextInt(itemsPerSection);
+    }
+  }
+
+  private int next() {
+    return cursor++ & (TARGET_COUNT - 1);
+  }
+
+  @Benchmark
+  public int invalidate() {
+    return positionManager.invalidate(itemProvider);
+  }
+
+  @Benchmark
+  public ItemCoord relativePosition() {
+    return positionManager.relativePosition(positions[next()]);
+  }
+
+  @Benchmark
+  public long packedRelativePosition() {
+    return positionManager.packedRelativePosition(positions[next()]);
+  }
+
+  @Benchmark
+  public int absolutePosition() {
+    int target = next();
+    return positionManager.absolutePosition(sections[target], relativePositions[target]);
+  }
+
+  @Benchmark
+  public int sectionHeaderIndex() {
+    return positionManager.sectionHeaderIndex(sections[next()]);
+  }
+
+  @Benchmark
+  public void isHeaderIsFooter(Blackhole blackhole) {
+    int position = positions[next()];
+    blackhole.consume(positionManager.isHeader(position));
+    blackhole.consume(positionManager.isFooter(position));
+  }
+
+  private static class FixedItemProvider implements ItemProvider {
+
+    private final int sectionCount;
+    private final int itemsPerSection;
+    private final boolean showFooters;
+
+    FixedItemProvider(int sectionCount, int itemsPerSection, boolean showFooters) {
+      this.sectionCount = sectionCount;
+      this.itemsPerSection = itemsPerSection;
+      this.showFooters = showFooters;
+    }
+
+    @Override
+    public int getSectionCount() {
+      return sectionCount;
+    }
+
+    @Override
+    public int getItemCount(int sectionIndex) {
+      return itemsPerSection;
+    }
+
+    @Override
+    public boolean showHeadersForEmptySections() {
+      return false;
+    }
+
+    @Override
+    public boolean showFooters() {
+      return showFooters;
+    }
+  }
+}
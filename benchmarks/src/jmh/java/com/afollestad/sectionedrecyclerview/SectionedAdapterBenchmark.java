@@ -0,0 +1,83 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the adapter's own calls, index updates and notifications included, as an attached
+ * adapter runs them. Each invocation collapses every section and expands them again, so it ends in
+ * the state it started in without a per-invocation setup, whose overhead would swamp the small
+ * cases.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SectionedAdapterBenchmark {
+
+  @Param({"10", "1000", "100000"})
+  int sectionCount;
+
+  @Param({"1", "100"})
+  int itemsPerSection;
+
+  private FixedAdapter adapter;
+
+  @Setup
+  public void setup() {
+    adapter = new FixedAdapter(sectionCount, itemsPerSection);
+    adapter.onAttachedToRecyclerView(null);
+    adapter.getItemCount();
+  }
+
+  @Benchmark
+  public int collapseAndExpandAllSections() {
+    adapter.collapseAllSections();
+    adapter.expandAllSections();
+    return adapter.getItemCount();
+  }
+
+  private static class FixedAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    private final int sectionCount;
+    private final int itemsPerSection;
+
+    FixedAdapter(int sectionCount, int itemsPerSection) {
+      this.sectionCount = sectionCount;
+      this.itemsPerSection = itemsPerSection;
+    }
+
+    @Override
+    public int getSectionCount() {
+      return sectionCount;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      return itemsPerSection;
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new View()) {};
+    }
+  }
+}
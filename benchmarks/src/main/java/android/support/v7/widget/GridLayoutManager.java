@@ -0,0 +1,39 @@
+package android.support.v7.widget;
+
+/** Stand-in for the support library class, so the library's span lookup compiles on a plain JVM. */
+public class GridLayoutManager {
+
+  private final int spanCount;
+  private SpanSizeLookup spanSizeLookup;
+
+  public GridLayoutManager(int spanCount) {
+    this.spanCount = spanCount;
+  }
+
+  public int getSpanCount() {
+    return spanCount;
+  }
+
+  public void setSpanSizeLookup(SpanSizeLookup spanSizeLookup) {
+    this.spanSizeLookup = spanSizeLookup;
+  }
+
+  public SpanSizeLookup getSpanSizeLookup() {
+    return spanSizeLookup;
+  }
+
+  public abstract static class SpanSizeLookup {
+
+    public abstract int getSpanSize(int position);
+
+    public void invalidateSpanIndexCache() {}
+
+    public int getSpanIndex(int position, int spanCount) {
+      return 0;
+    }
+
+    public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+      return 0;
+    }
+  }
+}
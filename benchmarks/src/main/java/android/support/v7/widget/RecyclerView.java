@@ -0,0 +1,149 @@
+package android.support.v7.widget;
+
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stand-in for the support library class, so the library's adapter and view holder compile on a
+ * plain JVM. Notify calls go straight to the registered observers, the same as the real adapter's.
+ */
+public class RecyclerView extends ViewGroup {
+
+  public static final int NO_POSITION = -1;
+  public static final long NO_ID = -1;
+
+  public abstract static class Adapter<VH extends ViewHolder> {
+
+    private final List<AdapterDataObserver> observers = new ArrayList<>();
+    private boolean hasStableIds;
+
+    public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+    public abstract void onBindViewHolder(VH holder, int position);
+
+    public void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+      onBindViewHolder(holder, position);
+    }
+
+    public abstract int getItemCount();
+
+    public int getItemViewType(int position) {
+      return 0;
+    }
+
+    public long getItemId(int position) {
+      return NO_ID;
+    }
+
+    public void setHasStableIds(boolean hasStableIds) {
+      if (!observers.isEmpty()) {
+        throw new IllegalStateException("Cannot change whether this adapter has stable IDs.");
+      }
+      this.hasStableIds = hasStableIds;
+    }
+
+    public final boolean hasStableIds() {
+      return hasStableIds;
+    }
+
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {}
+
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {}
+
+    public void registerAdapterDataObserver(AdapterDataObserver observer) {
+      observers.add(observer);
+    }
+
+    public void unregisterAdapterDataObserver(AdapterDataObserver observer) {
+      observers.remove(observer);
+    }
+
+    public final void notifyDataSetChanged() {
+      for (int i = observers.size() - 1; i >= 0; i--) {
+        observers.get(i).onChanged();
+      }
+    }
+
+    public final void notifyItemChanged(int position) {
+      notifyItemRangeChanged(position, 1, null);
+    }
+
+    public final void notifyItemChanged(int position, Object payload) {
+      notifyItemRangeChanged(position, 1, payload);
+    }
+
+    public final void notifyItemRangeChanged(int positionStart, int itemCount) {
+      notifyItemRangeChanged(positionStart, itemCount, null);
+    }
+
+    public final void notifyItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      for (int i = observers.size() - 1; i >= 0; i--) {
+        observers.get(i).onItemRangeChanged(positionStart, itemCount, payload);
+      }
+    }
+
+    public final void notifyItemInserted(int position) {
+      notifyItemRangeInserted(position, 1);
+    }
+
+    public final void notifyItemRangeInserted(int positionStart, int itemCount) {
+      for (int i = observers.size() - 1; i >= 0; i--) {
+        observers.get(i).onItemRangeInserted(positionStart, itemCount);
+      }
+    }
+
+    public final void notifyItemRemoved(int position) {
+      notifyItemRangeRemoved(position, 1);
+    }
+
+    public final void notifyItemRangeRemoved(int positionStart, int itemCount) {
+      for (int i = observers.size() - 1; i >= 0; i--) {
+        observers.get(i).onItemRangeRemoved(positionStart, itemCount);
+      }
+    }
+
+    public final void notifyItemMoved(int fromPosition, int toPosition) {
+      for (int i = observers.size() - 1; i >= 0; i--) {
+        observers.get(i).onItemRangeMoved(fromPosition, toPosition, 1);
+      }
+    }
+  }
+
+  public abstract static class AdapterDataObserver {
+
+    public void onChanged() {}
+
+    public void onItemRangeChanged(int positionStart, int itemCount) {}
+
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      onItemRangeChanged(positionStart, itemCount);
+    }
+
+    public void onItemRangeInserted(int positionStart, int itemCount) {}
+
+    public void onItemRangeRemoved(int positionStart, int itemCount) {}
+
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {}
+  }
+
+  public static class RecycledViewPool {}
+
+  public abstract static class ViewHolder {
+
+    public final View itemView;
+
+    public ViewHolder(View itemView) {
+      this.itemView = itemView;
+    }
+
+    public final int getAdapterPosition() {
+      return NO_POSITION;
+    }
+
+    public final int getItemViewType() {
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,20 @@
+package android.support.v7.widget;
+
+import android.view.ViewGroup;
+
+/** Stand-in for the support library class, so the library's adapter compiles on a plain JVM. */
+public class StaggeredGridLayoutManager {
+
+  public static class LayoutParams extends ViewGroup.LayoutParams {
+
+    private boolean fullSpan;
+
+    public boolean isFullSpan() {
+      return fullSpan;
+    }
+
+    public void setFullSpan(boolean fullSpan) {
+      this.fullSpan = fullSpan;
+    }
+  }
+}
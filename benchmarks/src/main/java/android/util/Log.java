@@ -0,0 +1,11 @@
+package android.util;
+
+/** Stand-in for the framework class, so the library's adapter compiles on a plain JVM. */
+public final class Log {
+
+  private Log() {}
+
+  public static int d(String tag, String msg) {
+    return 0;
+  }
+}
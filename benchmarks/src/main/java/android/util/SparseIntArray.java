@@ -0,0 +1,26 @@
+package android.util;
+
+import java.util.TreeMap;
+
+/** Stand-in for the framework class, so the library's adapter compiles on a plain JVM. */
+public class SparseIntArray {
+
+  private final TreeMap<Integer, Integer> values = new TreeMap<>();
+
+  public int get(int key) {
+    Integer value = values.get(key);
+    return value != null ? value : 0;
+  }
+
+  public void put(int key, int value) {
+    values.put(key, value);
+  }
+
+  public int indexOfKey(int key) {
+    return values.containsKey(key) ? values.headMap(key).size() : -1;
+  }
+
+  public void clear() {
+    values.clear();
+  }
+}
@@ -0,0 +1,15 @@
+package android.view;
+
+/** Stand-in for the framework class, so the library's view holder compiles on a plain JVM. */
+public class View {
+
+  private ViewGroup.LayoutParams layoutParams;
+
+  public ViewGroup.LayoutParams getLayoutParams() {
+    return layoutParams;
+  }
+
+  public void setLayoutParams(ViewGroup.LayoutParams layoutParams) {
+    this.layoutParams = layoutParams;
+  }
+}
@@ -0,0 +1,7 @@
+package android.view;
+
+/** Stand-in for the framework class, so the library's adapter compiles on a plain JVM. */
+public class ViewGroup extends View {
+
+  public static class LayoutParams {}
+}
@@ -0,0 +1,11 @@
+package android.widget;
+
+/** Stand-in for the framework interface, so the library's adapter compiles on a plain JVM. */
+public interface SectionIndexer {
+
+  Object[] getSections();
+
+  int getPositionForSection(int sectionIndex);
+
+  int getSectionForPosition(int position);
+}
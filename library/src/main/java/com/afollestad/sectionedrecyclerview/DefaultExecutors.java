@@ -0,0 +1,45 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.support.annotation.RestrictTo;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/** The executors used by {@link SectionedListDiffer} and {@link SectionedPager} unless given. */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+final class DefaultExecutors {
+
+  private static Executor mainThreadExecutor;
+  private static ExecutorService backgroundExecutor;
+
+  private DefaultExecutors() {}
+
+  /** Posts to the main thread's looper. */
+  static synchronized Executor mainThread() {
+    if (mainThreadExecutor == null) {
+      mainThreadExecutor = new MainThreadExecutor();
+    }
+    return mainThreadExecutor;
+  }
+
+  /** A small thread pool, created on first use and shared by every differ and pager. */
+  static synchronized Executor background() {
+    if (backgroundExecutor == null) {
+      backgroundExecutor = Executors.newFixedThreadPool(2);
+    }
+    return backgroundExecutor;
+  }
+
+  private static class MainThreadExecutor implements Executor {
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+      handler.post(command);
+    }
+  }
+}
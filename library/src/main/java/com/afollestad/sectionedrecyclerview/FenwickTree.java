@@ -0,0 +1,100 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+import java.util.Arrays;
+
+/**
+ * A binary indexed tree over section sizes. Updating one size, reading a prefix sum and finding the
+ * section that contains an absolute position are all O(log n).
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class FenwickTree {
+
+  /** 1-based; tree[i] holds the sum of the values in (i - lowestOneBit(i), i]. */
+  private int[] tree;
+
+  private int size;
+
+  FenwickTree() {
+    this.tree = new int[1];
+  }
+
+  int size() {
+    return size;
+  }
+
+  /** Replaces the contents with the first {@code count} values, in O(n). */
+  void build(int[] values, int count) {
+    ensureCapacity(count);
+    size = count;
+    tree[0] = 0;
+    System.arraycopy(values, 0, tree, 1, count);
+    for (int i = 1; i <= count; i++) {
+      int parent = i + Integer.lowestOneBit(i);
+      if (parent <= count) {
+        tree[parent] += tree[i];
+      }
+    }
+  }
+
+  FenwickTree copy() {
+    FenwickTree copy = new FenwickTree();
+    copy.tree = Arrays.copyOf(tree, size + 1);
+    copy.size = size;
+    return copy;
+  }
+
+  /** Adds a value at the end, in O(log n). */
+  void append(int value) {
+    ensureCapacity(size + 1);
+    int index = size + 1;
+    tree[index] = value + prefixSum(size) - prefixSum(index - Integer.lowestOneBit(index));
+    size = index;
+  }
+
+  /** Drops every value at or after {@code count}, in O(1). */
+  void truncate(int count) {
+    if (count < size) {
+      size = count;
+    }
+  }
+
+  void add(int index, int delta) {
+    for (int i = index + 1; i <= size; i += Integer.lowestOneBit(i)) {
+      tree[i] += delta;
+    }
+  }
+
+  /** Returns the sum of the values before {@code index}. */
+  int prefixSum(int index) {
+    int sum = 0;
+    for (int i = index; i > 0; i -= Integer.lowestOneBit(i)) {
+      sum += tree[i];
+    }
+    return sum;
+  }
+
+  /**
+   * Returns the index of the value whose range contains {@code position}, that is the largest index
+   * with {@code prefixSum(index) <= position}. Zero values are skipped over, and {@link #size()} is
+   * returned if the position is past the total.
+   */
+  int indexOf(int position) {
+    int index = 0;
+    int remaining = position;
+    for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+      int next = index + step;
+      if (next <= size && tree[next] <= remaining) {
+        index = next;
+        remaining -= tree[next];
+      }
+    }
+    return index;
+  }
+
+  private void ensureCapacity(int count) {
+    if (tree.length < count + 1) {
+      tree = Arrays.copyOf(tree, Math.max(count + 1, tree.length * 2));
+    }
+  }
+}
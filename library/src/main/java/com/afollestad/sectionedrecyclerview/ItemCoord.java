@@ -19,6 +19,23 @@ public class ItemCoord {
     return relativePos;
   }
 
+  /**
+   * Packs a section and relative position into a single long, so hot paths can pass coordinates
+   * around without allocating. Use {@link #section(long)} and {@link #relativePos(long)} to read
+   * them back.
+   */
+  public static long pack(int section, int relativePos) {
+    return ((long) section << 32) | (relativePos & 0xFFFFFFFFL);
+  }
+
+  public static int section(long packedCoord) {
+    return (int) (packedCoord >> 32);
+  }
+
+  public static int relativePos(long packedCoord) {
+    return (int) packedCoord;
+  }
+
   @Override
   public boolean equals(Object obj) {
     return obj instanceof ItemCoord
@@ -0,0 +1,16 @@
+package com.afollestad.sectionedrecyclerview;
+
+/**
+ * Implement on a {@link SectionedRecyclerViewAdapter} to hand over every section's item count in
+ * one call when the layout is rebuilt, instead of having {@link
+ * SectionedRecyclerViewAdapter#getItemCount(int)} polled once per section. Useful when counts
+ * come from a single query, such as a grouped count over a database cursor.
+ *
+ * <p>Counts are cached until the next rebuild. Section level notify calls update a single
+ * section's count without a rebuild.
+ */
+public interface ItemCountSource {
+
+  /** Writes the item count of each of the first {@code sectionCount} sections to {@code counts}. */
+  void getItemCounts(int[] counts, int sectionCount);
+}
@@ -0,0 +1,223 @@
+package com.afollestad.sectionedrecyclerview;
+
+import java.util.Arrays;
+
+/**
+ * A {@link MetricsListener} that keeps counts and the most recent timings in memory, so
+ * percentiles like p50 and p99 bind latency per view type can be logged from production builds.
+ * Recording doesn't allocate once a view type has been seen; reading a percentile sorts a copy of
+ * the retained samples.
+ */
+public class MetricsAggregator implements MetricsListener {
+
+  private static final int DEFAULT_SAMPLE_SIZE = 512;
+
+  private final int sampleSize;
+  private final LatencySamples invalidateLatencies;
+  private final int[] notifyCounts;
+  private int[] viewTypes;
+  private LatencySamples[] bindLatencies;
+  private int[] partialBindCounts;
+  private int viewTypeCount;
+  private int lastSectionCount;
+  private int lastItemCount;
+
+  public MetricsAggregator() {
+    this(DEFAULT_SAMPLE_SIZE);
+  }
+
+  /** @param sampleSize how many of the most recent timings to keep for each percentile. */
+  public MetricsAggregator(int sampleSize) {
+    this.sampleSize = sampleSize;
+    this.invalidateLatencies = new LatencySamples(sampleSize);
+    this.notifyCounts = new int[NotifyType.values().length];
+    this.viewTypes = new int[4];
+    this.bindLatencies = new LatencySamples[4];
+    this.partialBindCounts = new int[4];
+  }
+
+  @Override
+  public void onInvalidate(long durationNanos, int sectionCount, int itemCount) {
+    invalidateLatencies.record(durationNanos);
+    lastSectionCount = sectionCount;
+    lastItemCount = itemCount;
+  }
+
+  @Override
+  public void onBind(int viewType, boolean partial, long durationNanos) {
+    int index = indexOf(viewType);
+    if (index == -1) {
+      index = addViewType(viewType);
+    }
+    bindLatencies[index].record(durationNanos);
+    if (partial) {
+      partialBindCounts[index]++;
+    }
+  }
+
+  @Override
+  public void onNotify(NotifyType type, int positionStart, int itemCount) {
+    notifyCounts[type.ordinal()]++;
+  }
+
+  public int getInvalidateCount() {
+    return invalidateLatencies.count();
+  }
+
+  /** Returns the given percentile (0 to 100) of recent invalidate durations, in nanoseconds. */
+  public long getInvalidatePercentile(double percentile) {
+    return invalidateLatencies.percentile(percentile);
+  }
+
+  /** Returns the section count of the most recent index rebuild. */
+  public int getLastSectionCount() {
+    return lastSectionCount;
+  }
+
+  /** Returns the item count of the most recent index rebuild. */
+  public int getLastItemCount() {
+    return lastItemCount;
+  }
+
+  /** Returns every view type that has been bound, in the order they were first seen. */
+  public int[] getViewTypes() {
+    return Arrays.copyOf(viewTypes, viewTypeCount);
+  }
+
+  public int getBindCount(int viewType) {
+    int index = indexOf(viewType);
+    return index != -1 ? bindLatencies[index].count() : 0;
+  }
+
+  /** Returns how many binds of the view type were partial, i.e. had payloads. */
+  public int getPartialBindCount(int viewType) {
+    int index = indexOf(viewType);
+    return index != -1 ? partialBindCounts[index] : 0;
+  }
+
+  /** Returns the given percentile (0 to 100) of recent bind durations, in nanoseconds. */
+  public long getBindPercentile(int viewType, double percentile) {
+    int index = indexOf(viewType);
+    return index != -1 ? bindLatencies[index].percentile(percentile) : 0;
+  }
+
+  public int getNotifyCount(NotifyType type) {
+    return notifyCounts[type.ordinal()];
+  }
+
+  public void reset() {
+    invalidateLatencies.clear();
+    Arrays.fill(notifyCounts, 0);
+    viewTypeCount = 0;
+    lastSectionCount = 0;
+    lastItemCount = 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("MetricsAggregator{invalidate: ");
+    sb.append(getInvalidateCount())
+        .append(" runs, p50 ")
+        .append(getInvalidatePercentile(50))
+        .append("ns, p99 ")
+        .append(getInvalidatePercentile(99))
+        .append("ns");
+    for (int i = 0; i < viewTypeCount; i++) {
+      sb.append("; viewType ")
+          .append(viewTypes[i])
+          .append(": ")
+          .append(bindLatencies[i].count())
+          .append(" binds (")
+          .append(partialBindCounts[i])
+          .append(" partial), p50 ")
+          .append(bindLatencies[i].percentile(50))
+          .append("ns, p99 ")
+          .append(bindLatencies[i].percentile(99))
+          .append("ns");
+    }
+    for (NotifyType type : NotifyType.values()) {
+      sb.append("; ").append(type).append(": ").append(notifyCounts[type.ordinal()]);
+    }
+    return sb.append('}').toString();
+  }
+
+  /** View types are few, so a linear scan beats boxing them as map keys. */
+  private int indexOf(int viewType) {
+    for (int i = 0; i < viewTypeCount; i++) {
+      if (viewTypes[i] == viewType) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private int addViewType(int viewType) {
+    if (viewTypeCount == viewTypes.length) {
+      int capacity = viewTypes.length * 2;
+      viewTypes = Arrays.copyOf(viewTypes, capacity);
+      bindLatencies = Arrays.copyOf(bindLatencies, capacity);
+      partialBindCounts = Arrays.copyOf(partialBindCounts, capacity);
+    }
+    int index = viewTypeCount++;
+    viewTypes[index] = viewType;
+    if (bindLatencies[index] == null) {
+      bindLatencies[index] = new LatencySamples(sampleSize);
+    } else {
+      bindLatencies[index].clear();
+    }
+    partialBindCounts[index] = 0;
+    return index;
+  }
+
+  /**
+   * A ring buffer of the most recent durations, plus a count of every one recorded which stops at
+   * {@link Integer#MAX_VALUE}.
+   */
+  static class LatencySamples {
+
+    private final long[] samples;
+    private int count;
+    private int retained;
+    private int next;
+
+    LatencySamples(int size) {
+      this(size, 0);
+    }
+
+    /** Starts with a count of samples that were recorded but not retained. */
+    LatencySamples(int size, int count) {
+      this.samples = new long[size];
+      this.count = count;
+    }
+
+    void record(long durationNanos) {
+      samples[next] = durationNanos;
+      next = next + 1 == samples.length ? 0 : next + 1;
+      retained = Math.min(retained + 1, samples.length);
+      if (count != Integer.MAX_VALUE) {
+        count++;
+      }
+    }
+
+    int count() {
+      return count;
+    }
+
+    void clear() {
+      count = 0;
+      retained = 0;
+      next = 0;
+    }
+
+    /** Returns the nearest-rank percentile of the retained samples, or 0 if there are none. */
+    long percentile(double percentile) {
+      if (retained == 0) {
+        return 0;
+      }
+      long[] sorted = Arrays.copyOf(samples, retained);
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile / 100 * retained);
+      return sorted[Math.max(0, Math.min(rank, retained) - 1)];
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.afollestad.sectionedrecyclerview;
+
+/**
+ * Receives timings from the adapter's hot paths. Set one with {@link
+ * SectionedRecyclerViewAdapter#setMetricsListener(MetricsListener)}; while none is set, nothing
+ * is timed. Every callback happens on the main thread, inside the frame being measured, so
+ * implementations should be cheap and shouldn't allocate.
+ *
+ * @see MetricsAggregator
+ */
+public interface MetricsListener {
+
+  enum NotifyType {
+    DATA_SET_CHANGED,
+    ITEMS_CHANGED,
+    ITEMS_INSERTED,
+    ITEMS_REMOVED,
+    ITEMS_MOVED
+  }
+
+  /**
+   * The position index was rebuilt, either from the adapter's section and item counts or from
+   * counts it already had, such as after expanding or collapsing every section or applying a
+   * snapshot.
+   */
+  void onInvalidate(long durationNanos, int sectionCount, int itemCount);
+
+  /**
+   * A view holder was bound. {@code partial} is true if it was bound with payloads rather than
+   * from scratch.
+   */
+  void onBind(int viewType, boolean partial, long durationNanos);
+
+  /** The adapter notified its observers of a change. */
+  void onNotify(NotifyType type, int positionStart, int itemCount);
+}
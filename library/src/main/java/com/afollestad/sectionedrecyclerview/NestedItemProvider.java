@@ -0,0 +1,11 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+interface NestedItemProvider {
+
+  int getLevelCount();
+
+  int getChildCount(int[] path, int depth);
+}
@@ -0,0 +1,386 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.CallSuper;
+import android.support.annotation.IntRange;
+import android.support.annotation.RestrictTo;
+import android.support.v7.widget.RecyclerView;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An adapter for sections nested several levels deep, such as category, subcategory and item.
+ * Every section has a header and can be collapsed, hiding everything under it. Sections are
+ * identified by their path: an array holding the section's index at each level, of which only the
+ * first {@code depth} entries are used. Paths passed to callbacks are reused, so copy them if you
+ * need to keep them.
+ *
+ * <p>Positions are indexed in a tree, so converting between positions and paths and collapsing a
+ * section run in O(depth * log n), and collapsing only notifies the positions it hides.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public abstract class NestedSectionedRecyclerViewAdapter<VH extends RecyclerView.ViewHolder>
+    extends RecyclerView.Adapter<VH> implements NestedItemProvider {
+
+  protected static final int VIEW_TYPE_HEADER = -2;
+  protected static final int VIEW_TYPE_ITEM = -1;
+  private final SectionTree sectionTree;
+  private LayoutInvalidator layoutInvalidator;
+  private int attachedRecyclerViewCount;
+  private boolean dispatchingIndexedChange;
+  private int[] lookupPath;
+
+  public NestedSectionedRecyclerViewAdapter() {
+    sectionTree = new SectionTree();
+    lookupPath = new int[0];
+  }
+
+  /** Returns how many levels of sections there are; items sit below the deepest one. */
+  @Override
+  public abstract int getLevelCount();
+
+  /**
+   * Returns how many sections are under the section at {@code path}, or how many items if {@code
+   * depth} is {@link #getLevelCount()}. Depth 0 asks for the number of top-level sections.
+   */
+  @Override
+  public abstract int getChildCount(int[] path, int depth);
+
+  public abstract void onBindHeaderViewHolder(VH holder, int[] path, int depth, boolean expanded);
+
+  /** Binds an item of the section at {@code path}, whose depth is {@link #getLevelCount()}. */
+  public abstract void onBindViewHolder(
+      VH holder, int[] path, int relativePosition, int absolutePosition);
+
+  /**
+   * Binds a header with the payloads it was notified with, such as {@link
+   * SectionPayload#EXPANDED_STATE_CHANGED}. An empty list means a full bind. By default, payloads
+   * are ignored and {@link #onBindHeaderViewHolder(RecyclerView.ViewHolder, int[], int, boolean)}
+   * is called.
+   */
+  public void onBindHeaderViewHolder(
+      VH holder, int[] path, int depth, boolean expanded, List<Object> payloads) {
+    onBindHeaderViewHolder(holder, path, depth, expanded);
+  }
+
+  /**
+   * Binds an item with the payloads it was notified with. An empty list means a full bind. By
+   * default, payloads are ignored and {@link #onBindViewHolder(RecyclerView.ViewHolder, int[],
+   * int, int)} is called.
+   */
+  public void onBindViewHolder(
+      VH holder, int[] path, int relativePosition, int absolutePosition, List<Object> payloads) {
+    onBindViewHolder(holder, path, relativePosition, absolutePosition);
+  }
+
+  /**
+   * Override to use a different header layout per level. Returns {@link #VIEW_TYPE_HEADER} by
+   * default; view types you return must be zero or positive, like the item types, and differ from
+   * them.
+   */
+  @SuppressWarnings("UnusedParameters")
+  @IntRange(from = 0, to = Integer.MAX_VALUE)
+  public int getHeaderViewType(int[] path, int depth) {
+    //noinspection ResourceType
+    return VIEW_TYPE_HEADER;
+  }
+
+  /**
+   * Override to use different item layouts. Returns {@link #VIEW_TYPE_ITEM} by default; view types
+   * you return must be zero or positive, so they can't clash with the header and item defaults.
+   */
+  @SuppressWarnings("UnusedParameters")
+  @IntRange(from = 0, to = Integer.MAX_VALUE)
+  public int getItemViewType(int[] path, int relativePosition, int absolutePosition) {
+    //noinspection ResourceType
+    return VIEW_TYPE_ITEM;
+  }
+
+  public final boolean isSectionExpanded(int[] path, int depth) {
+    ensureLayout();
+    return !sectionTree.isCollapsed(path, depth);
+  }
+
+  public void expandSection(int[] path, int depth) {
+    ensureLayout();
+    if (sectionTree.isCollapsed(path, depth)) {
+      setSectionCollapsed(path, depth, false);
+    }
+  }
+
+  public void collapseSection(int[] path, int depth) {
+    ensureLayout();
+    if (!sectionTree.isCollapsed(path, depth)) {
+      setSectionCollapsed(path, depth, true);
+    }
+  }
+
+  public void toggleSectionExpanded(int[] path, int depth) {
+    ensureLayout();
+    setSectionCollapsed(path, depth, !sectionTree.isCollapsed(path, depth));
+  }
+
+  /**
+   * Collapsing or expanding a section inserts or removes only the positions under its header,
+   * including those of its expanded child sections. Sections under a collapsed ancestor change
+   * state without notifying anything.
+   */
+  private void setSectionCollapsed(int[] path, int depth, boolean collapsed) {
+    int headerIndex = sectionTree.headerPosition(path, depth);
+    int oldSize = sectionTree.sectionSize(path, depth);
+    sectionTree.setCollapsed(path, depth, collapsed);
+    if (headerIndex == -1) {
+      return;
+    }
+    notifyItemChanged(headerIndex, SectionPayload.EXPANDED_STATE_CHANGED);
+    if (collapsed) {
+      dispatchRangeRemoved(headerIndex + 1, oldSize - 1);
+    } else {
+      dispatchRangeInserted(headerIndex + 1, sectionTree.sectionSize(path, depth) - 1);
+    }
+  }
+
+  /** Returns the absolute position of a section's header, or -1 if an ancestor is collapsed. */
+  public final int getSectionHeaderIndex(int[] path, int depth) {
+    ensureLayout();
+    return sectionTree.headerPosition(path, depth);
+  }
+
+  /**
+   * Converts an item's position within the section at {@code path} to an absolute position, or
+   * returns -1 if it's out of range or hidden by a collapsed section.
+   */
+  public final int getAbsolutePosition(int[] path, int relativePosition) {
+    ensureLayout();
+    int levelCount = sectionTree.levelCount();
+    if (relativePosition < 0
+        || relativePosition >= sectionTree.childCount(path, levelCount)
+        || sectionTree.isCollapsed(path, levelCount)) {
+      return -1;
+    }
+    int headerIndex = sectionTree.headerPosition(path, levelCount);
+    return headerIndex != -1 ? headerIndex + 1 + relativePosition : -1;
+  }
+
+  /**
+   * Writes the path of the section an absolute position belongs to into {@code outPath}, which
+   * must hold at least {@link #getLevelCount()} entries. Returns the section's depth and the
+   * position relative to its first item, packed with {@link ItemCoord#pack(int, int)}; read them
+   * with {@link ItemCoord#section(long)} and {@link ItemCoord#relativePos(long)}. The relative
+   * position is -1 for headers. Doesn't allocate.
+   */
+  public final long getPath(int absolutePosition, int[] outPath) {
+    ensureLayout();
+    return sectionTree.locate(absolutePosition, outPath);
+  }
+
+  public final boolean isHeader(int position) {
+    ensureLayout();
+    long located = sectionTree.locate(position, lookupPath());
+    return ItemCoord.section(located) != -1 && ItemCoord.relativePos(located) == -1;
+  }
+
+  /** Notifies the adapter that items were inserted into the section at {@code path}. */
+  public void notifyItemInsertedInSection(
+      int[] path,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @IntRange(from = 1, to = Integer.MAX_VALUE) int count) {
+    int itemsStart = updateItemCount(path);
+    if (itemsStart != -1) {
+      dispatchRangeInserted(itemsStart + relativePosition, count);
+    }
+  }
+
+  /** Notifies the adapter that items were removed from the section at {@code path}. */
+  public void notifyItemRemovedInSection(
+      int[] path,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @IntRange(from = 1, to = Integer.MAX_VALUE) int count) {
+    int itemsStart = updateItemCount(path);
+    if (itemsStart != -1) {
+      dispatchRangeRemoved(itemsStart + relativePosition, count);
+    }
+  }
+
+  /**
+   * Updates the item count of a section in place, in O(depth * log n). Returns the absolute
+   * position of its first item, or -1 if its items aren't shown.
+   */
+  private int updateItemCount(int[] path) {
+    ensureLayout();
+    int levelCount = sectionTree.levelCount();
+    sectionTree.updateItemCount(path, getChildCount(path, levelCount));
+    int headerIndex = sectionTree.headerPosition(path, levelCount);
+    if (headerIndex == -1 || sectionTree.isCollapsed(path, levelCount)) {
+      return -1;
+    }
+    return headerIndex + 1;
+  }
+
+  @Override
+  public final int getItemCount() {
+    return ensureLayout();
+  }
+
+  /**
+   * Starts tracking notify calls, so the section tree is only rebuilt when one may have changed it.
+   * Like RecyclerView itself, this registers an observer, so call {@link #setHasStableIds(boolean)}
+   * before setting the adapter.
+   */
+  @CallSuper
+  @Override
+  public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+    super.onAttachedToRecyclerView(recyclerView);
+    attachedRecyclerViewCount++;
+    if (layoutInvalidator == null) {
+      layoutInvalidator = new LayoutInvalidator();
+      registerAdapterDataObserver(layoutInvalidator);
+      sectionTree.markDirty();
+    }
+  }
+
+  /** Stops tracking notify calls once the adapter is detached from every RecyclerView. */
+  @CallSuper
+  @Override
+  public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+    super.onDetachedFromRecyclerView(recyclerView);
+    attachedRecyclerViewCount--;
+    if (attachedRecyclerViewCount == 0 && layoutInvalidator != null) {
+      unregisterAdapterDataObserver(layoutInvalidator);
+      layoutInvalidator = null;
+    }
+  }
+
+  /**
+   * Rebuilds the section tree if it's stale, or every time until the adapter is attached, and
+   * returns its item count.
+   */
+  private int ensureLayout() {
+    if (layoutInvalidator == null) {
+      sectionTree.markDirty();
+    }
+    return sectionTree.itemCount(this);
+  }
+
+  /** Returns a scratch path for lookups, big enough for the current level count. */
+  private int[] lookupPath() {
+    if (lookupPath.length < sectionTree.levelCount()) {
+      lookupPath = new int[sectionTree.levelCount()];
+    }
+    return lookupPath;
+  }
+
+  /**
+   * @hide
+   * @deprecated
+   */
+  @Override
+  @Deprecated
+  @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+  public final int getItemViewType(int position) {
+    ensureLayout();
+    int[] path = lookupPath();
+    long located = sectionTree.locate(position, path);
+    int relativePosition = ItemCoord.relativePos(located);
+    if (relativePosition == -1) {
+      return getHeaderViewType(path, ItemCoord.section(located));
+    }
+    return getItemViewType(path, relativePosition, position);
+  }
+
+  /**
+   * @hide
+   * @deprecated
+   */
+  @Override
+  @Deprecated
+  @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+  public final void onBindViewHolder(VH holder, int position) {
+    bindViewHolder(holder, position, Collections.emptyList());
+  }
+
+  /**
+   * @hide
+   * @deprecated
+   */
+  @Override
+  @Deprecated
+  @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+  public final void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+    bindViewHolder(holder, position, payloads);
+  }
+
+  private void bindViewHolder(VH holder, int position, List<Object> payloads) {
+    ensureLayout();
+    int[] path = lookupPath();
+    long located = sectionTree.locate(position, path);
+    int depth = ItemCoord.section(located);
+    int relativePosition = ItemCoord.relativePos(located);
+    if (relativePosition == -1) {
+      onBindHeaderViewHolder(holder, path, depth, !sectionTree.isCollapsed(path, depth), payloads);
+    } else {
+      onBindViewHolder(holder, path, relativePosition, position, payloads);
+    }
+  }
+
+  // The dispatch methods below notify changes the section tree already reflects, so they don't
+  // mark it as stale.
+
+  private void dispatchRangeInserted(int positionStart, int itemCount) {
+    if (itemCount <= 0) {
+      return;
+    }
+    dispatchingIndexedChange = true;
+    try {
+      notifyItemRangeInserted(positionStart, itemCount);
+    } finally {
+      dispatchingIndexedChange = false;
+    }
+  }
+
+  private void dispatchRangeRemoved(int positionStart, int itemCount) {
+    if (itemCount <= 0) {
+      return;
+    }
+    dispatchingIndexedChange = true;
+    try {
+      notifyItemRangeRemoved(positionStart, itemCount);
+    } finally {
+      dispatchingIndexedChange = false;
+    }
+  }
+
+  /**
+   * Marks the section tree stale whenever a notify call may have changed the item count, unless
+   * the adapter is dispatching a change it has already applied to the tree itself.
+   */
+  private class LayoutInvalidator extends RecyclerView.AdapterDataObserver {
+
+    @Override
+    public void onChanged() {
+      if (!dispatchingIndexedChange) {
+        sectionTree.markDirty();
+      }
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      if (!dispatchingIndexedChange) {
+        sectionTree.markDirty();
+      }
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      if (!dispatchingIndexedChange) {
+        sectionTree.markDirty();
+      }
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      if (!dispatchingIndexedChange) {
+        sectionTree.markDirty();
+      }
+    }
+  }
+}
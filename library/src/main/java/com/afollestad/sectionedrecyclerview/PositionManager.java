@@ -1,113 +1,378 @@
 package com.afollestad.sectionedrecyclerview;
 
 import android.support.annotation.RestrictTo;
-import android.support.v4.util.ArrayMap;
+import java.util.Arrays;
 
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-class PositionManager implements SectionedViewHolder.PositionDelegate {
+class PositionManager {
 
-  private final ArrayMap<Integer, Integer> headerLocationMap;
-  private final ArrayMap<Integer, Integer> footerLocationMap;
-  private final ArrayMap<Integer, Boolean> collapsedSectionMap;
+  /** The item count of each section, as of the last rebuild or incremental update. */
+  private int[] sectionItemCounts;
+  /**
+   * The number of positions each section takes up: 0 if it's hidden, 1 if it's collapsed,
+   * otherwise its items plus a header and optional footer.
+   */
+  private int[] sectionSizes;
+  /** Sums of {@link #sectionSizes}, which can be updated in place without a rebuild. */
+  private FenwickTree sizeTree;
+  /**
+   * The absolute start position of each section. Only the first {@link #validStartCount} entries
+   * are up to date; incremental updates invalidate the entries after the section they touch, and
+   * lookups past that fall back to {@link #sizeTree}.
+   */
+  private int[] sectionStarts;
+
+  private int validStartCount;
+  /**
+   * Whether the arrays above are shared with a {@link SectionLayoutSnapshot} or its builder, in
+   * which case they're copied before being written to.
+   */
+  private boolean layoutShared;
+
+  private int generation;
+  private int sectionsGeneration;
+  private int invalidateCount;
+  private int sectionCount;
+  private int itemCount;
+  private boolean showHeadersForEmptySections;
+  private boolean showFooters;
+  private SectionBitSet collapsedSections;
   private ItemProvider itemProvider;
   private boolean hasInvalidated;
+  private boolean dirty;
+  private MetricsListener metricsListener;
 
   PositionManager() {
-    this.headerLocationMap = new ArrayMap<>(0);
-    this.footerLocationMap = new ArrayMap<>(0);
-    this.collapsedSectionMap = new ArrayMap<>(0);
+    this.sectionItemCounts = new int[0];
+    this.sectionSizes = new int[0];
+    this.sectionStarts = new int[0];
+    this.sizeTree = new FenwickTree();
+    this.collapsedSections = new SectionBitSet();
+  }
+
+  /** Reports every rebuild of the index to the given listener, or nothing if it's null. */
+  void setMetricsListener(MetricsListener metricsListener) {
+    this.metricsListener = metricsListener;
   }
 
   boolean hasInvalidated() {
     return hasInvalidated;
   }
 
+  /**
+   * Changes whenever the layout or collapsed state does, or the layout is marked stale, so that
+   * things derived from it know to recompute.
+   */
+  public int generation() {
+    return generation;
+  }
+
+  /**
+   * Changes whenever sections may have been added, removed or reordered, or were read from the
+   * provider again, so that state kept per section index knows to start over. Unlike {@link
+   * #generation()} it doesn't change when sections are only resized.
+   */
+  int sectionsGeneration() {
+    return sectionsGeneration;
+  }
+
+  /** Returns how many times the layout has been rebuilt from the provider. */
+  int invalidateCount() {
+    return invalidateCount;
+  }
+
+  /** Marks the layout as stale, the next call to {@link #itemCount(ItemProvider)} rebuilds it. */
+  void markDirty() {
+    dirty = true;
+    generation++;
+  }
+
+  boolean isDirty() {
+    return dirty || !hasInvalidated;
+  }
+
+  /** Returns the total item count, only rebuilding the layout if it has been marked stale. */
+  int itemCount(ItemProvider itemProvider) {
+    if (isDirty()) {
+      return invalidate(itemProvider);
+    }
+    return itemCount;
+  }
+
   int invalidate(ItemProvider itemProvider) {
+    long start = metricsListener != null ? System.nanoTime() : 0;
+    this.invalidateCount++;
+    this.sectionsGeneration++;
     this.hasInvalidated = true;
+    this.dirty = false;
     this.itemProvider = itemProvider;
+    this.showHeadersForEmptySections = itemProvider.showHeadersForEmptySections();
+    this.showFooters = itemProvider.showFooters();
+    this.sectionCount = itemProvider.getSectionCount();
+    ensureOwned();
+    ensureCapacity(sectionCount);
+    if (itemProvider instanceof ItemCountSource) {
+      ((ItemCountSource) itemProvider).getItemCounts(sectionItemCounts, sectionCount);
+    } else {
+      for (int s = 0; s < sectionCount; s++) {
+        sectionItemCounts[s] = itemProvider.getItemCount(s);
+      }
+    }
+    rebuildIndex(start);
+    return itemCount;
+  }
+
+  /** Recomputes every section size from the cached item counts, without querying the provider. */
+  private void rebuildIndex() {
+    rebuildIndex(metricsListener != null ? System.nanoTime() : 0);
+  }
+
+  /** Like {@link #rebuildIndex()}, reporting the time since {@code startNanos} as the rebuild's. */
+  private void rebuildIndex(long startNanos) {
+    ensureOwned();
     int count = 0;
-    headerLocationMap.clear();
-    footerLocationMap.clear();
-    for (int s = 0; s < itemProvider.getSectionCount(); s++) {
-      int itemCount = itemProvider.getItemCount(s);
-      if (itemProvider.showHeadersForEmptySections() || (itemCount > 0)) {
-        if (collapsedSectionMap.get(s) != null) {
-          headerLocationMap.put(count, s);
-          count += 1;
-          continue;
-        }
-        headerLocationMap.put(count, s);
-        count += itemCount + 1;
-        if (itemProvider.showFooters()) {
-          footerLocationMap.put(count, s);
-          count += 1;
-        }
+    for (int s = 0; s < sectionCount; s++) {
+      sectionStarts[s] = count;
+      sectionSizes[s] = sizeOf(s, sectionItemCounts[s]);
+      count += sectionSizes[s];
+    }
+    sizeTree.build(sectionSizes, sectionCount);
+    validStartCount = sectionCount;
+    itemCount = count;
+    generation++;
+    if (metricsListener != null) {
+      metricsListener.onInvalidate(System.nanoTime() - startNanos, sectionCount, itemCount);
+    }
+  }
+
+  /** Returns how many positions a section with the given item count would take up. */
+  int sizeOf(int section, int sectionItemCount) {
+    return sizeOf(
+        sectionItemCount,
+        collapsedSections.get(section),
+        showHeadersForEmptySections,
+        showFooters);
+  }
+
+  static int sizeOf(
+      int sectionItemCount,
+      boolean collapsed,
+      boolean showHeadersForEmptySections,
+      boolean showFooters) {
+    if (!showHeadersForEmptySections && sectionItemCount == 0) {
+      return 0;
+    } else if (collapsed) {
+      return 1;
+    }
+    return sectionItemCount + (showFooters ? 2 : 1);
+  }
+
+  /** Copies the layout arrays if a snapshot shares them, before they're written to. */
+  private void ensureOwned() {
+    if (!layoutShared) {
+      return;
+    }
+    sectionItemCounts = sectionItemCounts.clone();
+    sectionSizes = sectionSizes.clone();
+    sectionStarts = sectionStarts.clone();
+    sizeTree = sizeTree.copy();
+    layoutShared = false;
+  }
+
+  /**
+   * Captures what a {@link SectionLayoutSnapshot} is built from. The current layout is shared with
+   * the builder rather than copied, so the next write to it copies it instead.
+   */
+  SectionLayoutSnapshot.Builder newSnapshotBuilder(ItemProvider itemProvider) {
+    boolean indexed = !isDirty();
+    if (indexed) {
+      layoutShared = true;
+    }
+    return new SectionLayoutSnapshot.Builder(
+        generation,
+        itemProvider.showHeadersForEmptySections(),
+        itemProvider.showFooters(),
+        collapsedSections.copy(),
+        sectionCount,
+        indexed ? sectionItemCounts : null,
+        indexed ? sectionSizes : null);
+  }
+
+  /**
+   * Replaces the layout with a snapshot's in O(1), returning true. If the layout, collapsed state
+   * or settings changed since the snapshot's builder was created, the snapshot's sizes are stale;
+   * its item counts are used to recompute them in O(S) instead, still without querying the
+   * provider, and false is returned.
+   */
+  boolean applySnapshot(SectionLayoutSnapshot snapshot, ItemProvider itemProvider) {
+    boolean current =
+        snapshot.baseGeneration == generation
+            && snapshot.showHeadersForEmptySections == itemProvider.showHeadersForEmptySections()
+            && snapshot.showFooters == itemProvider.showFooters();
+    this.sectionsGeneration++;
+    this.hasInvalidated = true;
+    this.dirty = false;
+    this.itemProvider = itemProvider;
+    this.showHeadersForEmptySections = itemProvider.showHeadersForEmptySections();
+    this.showFooters = itemProvider.showFooters();
+    this.sectionCount = snapshot.sectionCount;
+    if (current) {
+      collapsedSections = snapshot.collapsedSections.copy();
+      sectionItemCounts = snapshot.itemCounts;
+      sectionSizes = snapshot.sizes;
+      sectionStarts = snapshot.starts;
+      sizeTree = snapshot.sizeTree;
+      layoutShared = true;
+      validStartCount = sectionCount;
+      itemCount = snapshot.itemCount;
+      generation++;
+      return true;
+    }
+    if (snapshot.oldSectionForNew != null) {
+      collapsedSections = collapsedSections.remap(snapshot.oldSectionForNew);
+    }
+    ensureOwned();
+    ensureCapacity(sectionCount);
+    System.arraycopy(snapshot.itemCounts, 0, sectionItemCounts, 0, sectionCount);
+    rebuildIndex();
+    return false;
+  }
+
+  private void ensureCapacity(int sectionCount) {
+    if (sectionSizes.length >= sectionCount) {
+      return;
+    }
+    int capacity = Math.max(sectionCount, sectionSizes.length * 2);
+    sectionItemCounts = Arrays.copyOf(sectionItemCounts, capacity);
+    sectionSizes = Arrays.copyOf(sectionSizes, capacity);
+    sectionStarts = Arrays.copyOf(sectionStarts, capacity);
+  }
+
+  /** Returns the absolute position a section starts at, whether or not it's visible. */
+  int sectionStart(int section) {
+    if (section < validStartCount) {
+      return sectionStarts[section];
+    }
+    return sizeTree.prefixSum(section);
+  }
+
+  /**
+   * Returns the section containing the given absolute position, or -1 if the position is out of
+   * range. Runs in O(log S).
+   */
+  private int sectionAt(int absolutePosition) {
+    if (absolutePosition < 0 || absolutePosition >= itemCount) {
+      return -1;
+    }
+    int last = validStartCount - 1;
+    if (last < 0 || absolutePosition >= sectionStarts[last] + sectionSizes[last]) {
+      return sizeTree.indexOf(absolutePosition);
+    }
+    // Find the last section starting at or before the position. Hidden sections share their start
+    // with the next section, so this always lands on the visible one.
+    int low = 0;
+    int high = last;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (sectionStarts[mid] <= absolutePosition) {
+        low = mid + 1;
+      } else {
+        high = mid - 1;
       }
     }
-    return count;
+    return high;
+  }
+
+  private boolean hasFooter(int section) {
+    return showFooters && sectionSizes[section] > 1;
   }
 
-  @Override
   public boolean isHeader(int absolutePosition) {
-    return headerLocationMap.get(absolutePosition) != null;
+    int section = sectionAt(absolutePosition);
+    return section != -1 && sectionStart(section) == absolutePosition;
   }
 
-  @Override
   public boolean isFooter(int absolutePosition) {
-    return footerLocationMap.get(absolutePosition) != null;
+    int section = sectionAt(absolutePosition);
+    return section != -1 && sectionFooterIndex(section) == absolutePosition;
+  }
+
+  public boolean isFooterCoord(long packedCoord) {
+    int section = ItemCoord.section(packedCoord);
+    return section >= 0
+        && section < sectionCount
+        && hasFooter(section)
+        && ItemCoord.relativePos(packedCoord) == sectionSizes[section] - 2;
   }
 
   int sectionId(int absolutePosition) {
-    Integer result = headerLocationMap.get(absolutePosition);
-    if (result == null) {
+    int section = sectionAt(absolutePosition);
+    if (section == -1 || sectionStart(section) != absolutePosition) {
       return -1;
     }
-    return result;
+    return section;
   }
 
   int footerId(int absolutePosition) {
-    Integer result = footerLocationMap.get(absolutePosition);
-    if (result == null) {
+    int section = sectionAt(absolutePosition);
+    if (section == -1 || sectionFooterIndex(section) != absolutePosition) {
       return -1;
     }
-    return result;
+    return section;
   }
 
   int sectionHeaderIndex(int section) {
-    for (Integer key : headerLocationMap.keySet()) {
-      if (headerLocationMap.get(key) == section) {
-        return key;
-      }
+    if (section < 0 || section >= sectionCount || sectionSizes[section] == 0) {
+      return -1;
     }
-    return -1;
+    return sectionStart(section);
   }
 
   int sectionFooterIndex(int section) {
-    for (Integer key : footerLocationMap.keySet()) {
-      if (footerLocationMap.get(key) == section) {
-        return key;
-      }
+    if (section < 0 || section >= sectionCount || !hasFooter(section)) {
+      return -1;
     }
-    return -1;
+    return sectionStart(section) + sectionSizes[section] - 1;
+  }
+
+  int sectionCount() {
+    return sectionCount;
+  }
+
+  /** Returns a section's item count as of the last rebuild or incremental update. */
+  int sectionItemCount(int section) {
+    return sectionItemCounts[section];
+  }
+
+  /** Returns the cached section count, unless the layout is stale. */
+  private int checkedSectionCount() {
+    return isDirty() ? itemProvider.getSectionCount() : sectionCount;
+  }
+
+  /** Returns the number of positions a section takes up, including its header and footer. */
+  int sectionSize(int section) {
+    if (section < 0 || section >= sectionCount) {
+      return 0;
+    }
+    return sectionSizes[section];
   }
 
   /** Converts an absolute position to a relative position and section. */
-  @Override
   public ItemCoord relativePosition(int absolutePosition) {
-    Integer absHeaderLoc = headerLocationMap.get(absolutePosition);
-    if (absHeaderLoc != null) {
-      return new ItemCoord(absHeaderLoc, -1);
-    }
-    Integer lastSectionIndex = -1;
-    for (Integer sectionIndex : headerLocationMap.keySet()) {
-      if (absolutePosition > sectionIndex) {
-        lastSectionIndex = sectionIndex;
-      } else {
-        break;
-      }
+    long packedCoord = packedRelativePosition(absolutePosition);
+    return new ItemCoord(ItemCoord.section(packedCoord), ItemCoord.relativePos(packedCoord));
+  }
+
+  /**
+   * Converts an absolute position to a relative position and section, packed with {@link
+   * ItemCoord#pack(int, int)}. Doesn't allocate.
+   */
+  public long packedRelativePosition(int absolutePosition) {
+    int section = sectionAt(absolutePosition);
+    if (section == -1) {
+      return ItemCoord.pack(-1, -1);
     }
-    return new ItemCoord(
-        headerLocationMap.get(lastSectionIndex), absolutePosition - lastSectionIndex - 1);
+    return ItemCoord.pack(section, absolutePosition - sectionStart(section) - 1);
   }
 
   /**
@@ -115,11 +380,11 @@ class PositionManager implements SectionedViewHolder.PositionDelegate {
    * all items and headers).
    */
   int absolutePosition(int sectionIndex, int relativeIndex) {
-    if (sectionIndex < 0 || sectionIndex > itemProvider.getSectionCount() - 1) {
+    if (sectionIndex < 0 || sectionIndex > sectionCount - 1) {
       return -1;
     }
     int sectionHeaderIndex = sectionHeaderIndex(sectionIndex);
-    if (relativeIndex > itemProvider.getItemCount(sectionIndex) - 1) {
+    if (sectionHeaderIndex == -1 || relativeIndex > sectionItemCounts[sectionIndex] - 1) {
       return -1;
     }
     return sectionHeaderIndex + (relativeIndex + 1);
@@ -133,44 +398,184 @@ class PositionManager implements SectionedViewHolder.PositionDelegate {
     return absolutePosition(relativePosition.section(), relativePosition.relativePos());
   }
 
+  /**
+   * Updates a section's item count in place in O(log S). Does nothing to the index if it's going to
+   * be rebuilt anyway.
+   */
+  void updateSectionItemCount(int section, int sectionItemCount) {
+    if (isDirty()) {
+      return;
+    }
+    ensureOwned();
+    sectionItemCounts[section] = sectionItemCount;
+    resizeSection(section);
+  }
+
+  private void resizeSection(int section) {
+    int newSize = sizeOf(section, sectionItemCounts[section]);
+    int delta = newSize - sectionSizes[section];
+    if (delta == 0) {
+      return;
+    }
+    ensureOwned();
+    sectionSizes[section] = newSize;
+    sizeTree.add(section, delta);
+    itemCount += delta;
+    // The section's own start doesn't depend on its size, only the ones after it do.
+    validStartCount = Math.min(validStartCount, section + 1);
+    generation++;
+  }
+
+  /**
+   * Makes room for sections inserted at the given index, querying the provider only for the new
+   * sections. Shifting the per-section arrays is O(S), but appending is O(log S) per section.
+   */
+  void insertSections(int section, int count) {
+    collapsedSections.insert(section, count);
+    sectionsGeneration++;
+    if (isDirty()) {
+      generation++;
+      return;
+    }
+    ensureOwned();
+    ensureCapacity(sectionCount + count);
+    int moved = sectionCount - section;
+    System.arraycopy(sectionItemCounts, section, sectionItemCounts, section + count, moved);
+    System.arraycopy(sectionSizes, section, sectionSizes, section + count, moved);
+    sectionCount += count;
+    for (int s = section; s < section + count; s++) {
+      sectionItemCounts[s] = itemProvider.getItemCount(s);
+      sectionSizes[s] = sizeOf(s, sectionItemCounts[s]);
+      itemCount += sectionSizes[s];
+    }
+    if (moved == 0) {
+      for (int s = section; s < sectionCount; s++) {
+        sizeTree.append(sectionSizes[s]);
+      }
+    } else {
+      sizeTree.build(sectionSizes, sectionCount);
+    }
+    validStartCount = Math.min(validStartCount, section);
+    generation++;
+  }
+
+  /**
+   * Drops the state of removed sections, shifting later sections down. Removing from the end is
+   * O(1), anything else shifts the per-section arrays in O(S).
+   */
+  void removeSections(int section, int count) {
+    collapsedSections.remove(section, count);
+    sectionsGeneration++;
+    if (isDirty()) {
+      generation++;
+      return;
+    }
+    ensureOwned();
+    for (int s = section; s < section + count; s++) {
+      itemCount -= sectionSizes[s];
+    }
+    int moved = sectionCount - section - count;
+    System.arraycopy(sectionItemCounts, section + count, sectionItemCounts, section, moved);
+    System.arraycopy(sectionSizes, section + count, sectionSizes, section, moved);
+    sectionCount -= count;
+    if (moved == 0) {
+      sizeTree.truncate(sectionCount);
+    } else {
+      sizeTree.build(sectionSizes, sectionCount);
+    }
+    validStartCount = Math.min(validStartCount, section);
+    generation++;
+  }
+
+  /** Moves a section's state to a new index, shifting the sections between. O(S). */
+  void moveSection(int fromSection, int toSection) {
+    collapsedSections.move(fromSection, toSection);
+    sectionsGeneration++;
+    if (isDirty() || fromSection == toSection) {
+      generation++;
+      return;
+    }
+    ensureOwned();
+    int movedItemCount = sectionItemCounts[fromSection];
+    int movedSize = sectionSizes[fromSection];
+    if (fromSection < toSection) {
+      int shifted = toSection - fromSection;
+      System.arraycopy(sectionItemCounts, fromSection + 1, sectionItemCounts, fromSection, shifted);
+      System.arraycopy(sectionSizes, fromSection + 1, sectionSizes, fromSection, shifted);
+    } else {
+      int shifted = fromSection - toSection;
+      System.arraycopy(sectionItemCounts, toSection, sectionItemCounts, toSection + 1, shifted);
+      System.arraycopy(sectionSizes, toSection, sectionSizes, toSection + 1, shifted);
+    }
+    sectionItemCounts[toSection] = movedItemCount;
+    sectionSizes[toSection] = movedSize;
+    sizeTree.build(sectionSizes, sectionCount);
+    validStartCount = Math.min(validStartCount, Math.min(fromSection, toSection));
+    generation++;
+  }
+
+  /**
+   * Carries collapsed state over to a reordered set of sections, given the old index of each new
+   * section or -1 for new ones. The layout has to be rebuilt afterwards.
+   */
+  void remapSections(int[] oldSectionForNew) {
+    collapsedSections = collapsedSections.remap(oldSectionForNew);
+    markDirty();
+  }
+
   void expandSection(int section) {
-    if (section < 0 || section > itemProvider.getSectionCount() - 1) {
+    if (section < 0 || section > checkedSectionCount() - 1) {
       throw new IllegalArgumentException("Section " + section + " is out of bounds.");
     }
-    collapsedSectionMap.remove(section);
+    collapsedSections.clear(section);
+    generation++;
+    if (!isDirty()) {
+      resizeSection(section);
+    }
   }
 
   void collapseSection(int section) {
-    if (section < 0 || section > itemProvider.getSectionCount() - 1) {
+    if (section < 0 || section > checkedSectionCount() - 1) {
       throw new IllegalArgumentException("Section " + section + " is out of bounds.");
     }
-    collapsedSectionMap.put(section, true);
+    collapsedSections.set(section);
+    generation++;
+    if (!isDirty()) {
+      resizeSection(section);
+    }
   }
 
   void toggleSectionExpanded(int section) {
-    if (collapsedSectionMap.get(section) != null) {
+    if (collapsedSections.get(section)) {
       expandSection(section);
     } else {
       collapseSection(section);
     }
   }
 
+  /** Expands every section, recomputing the index once in O(S). */
   void expandAllSections() {
-    for (int i = 0; i < itemProvider.getSectionCount(); i++) {
-      expandSection(i);
+    collapsedSections.clear();
+    generation++;
+    if (!isDirty()) {
+      rebuildIndex();
     }
   }
 
+  /** Collapses every section, recomputing the index once in O(S). */
   void collapseAllSections() {
-    for (int i = 0; i < itemProvider.getSectionCount(); i++) {
-      collapseSection(i);
+    collapsedSections.clear();
+    collapsedSections.set(0, checkedSectionCount());
+    generation++;
+    if (!isDirty()) {
+      rebuildIndex();
     }
   }
 
   boolean isSectionExpanded(int section) {
-    if (section < 0 || section > itemProvider.getSectionCount() - 1) {
+    if (section < 0 || section > checkedSectionCount() - 1) {
       throw new IllegalArgumentException("Section " + section + " is out of bounds.");
     }
-    return collapsedSectionMap.get(section) == null;
+    return !collapsedSections.get(section);
   }
 }
@@ -0,0 +1,161 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+import java.util.Arrays;
+
+/**
+ * A growable set of bits indexed by section. Unlike {@link java.util.BitSet}, bits can be shifted
+ * when sections are inserted or removed in front of them.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class SectionBitSet {
+
+  private long[] words;
+
+  SectionBitSet() {
+    this.words = new long[0];
+  }
+
+  boolean get(int index) {
+    int wordIndex = index >>> 6;
+    return wordIndex < words.length && (words[wordIndex] & (1L << index)) != 0;
+  }
+
+  void set(int index) {
+    ensureCapacity(index + 1);
+    words[index >>> 6] |= 1L << index;
+  }
+
+  void clear(int index) {
+    int wordIndex = index >>> 6;
+    if (wordIndex < words.length) {
+      words[wordIndex] &= ~(1L << index);
+    }
+  }
+
+  /** Sets every bit from {@code fromIndex} (inclusive) to {@code toIndex} (exclusive). */
+  void set(int fromIndex, int toIndex) {
+    if (fromIndex >= toIndex) {
+      return;
+    }
+    ensureCapacity(toIndex);
+    int firstWord = fromIndex >>> 6;
+    int lastWord = (toIndex - 1) >>> 6;
+    for (int i = firstWord; i <= lastWord; i++) {
+      words[i] |= ~maskBelow(i, fromIndex) & maskBelow(i, toIndex);
+    }
+  }
+
+  /** Clears every bit. */
+  void clear() {
+    Arrays.fill(words, 0L);
+  }
+
+  SectionBitSet copy() {
+    SectionBitSet copy = new SectionBitSet();
+    copy.words = words.clone();
+    return copy;
+  }
+
+  /**
+   * Returns a copy with bits carried over to a reordered set of sections, given the old index of
+   * each new section or -1 for new ones.
+   */
+  SectionBitSet remap(int[] oldIndexForNew) {
+    SectionBitSet remapped = new SectionBitSet();
+    for (int i = 0; i < oldIndexForNew.length; i++) {
+      if (oldIndexForNew[i] != -1 && get(oldIndexForNew[i])) {
+        remapped.set(i);
+      }
+    }
+    return remapped;
+  }
+
+  /** Returns the index of the highest set bit plus one, or 0 if no bits are set. */
+  int length() {
+    for (int i = words.length - 1; i >= 0; i--) {
+      if (words[i] != 0) {
+        return (i << 6) + 64 - Long.numberOfLeadingZeros(words[i]);
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Shifts every bit at or above {@code index} up by {@code count}, leaving {@code count} cleared
+   * bits at {@code index}. Used when sections are inserted.
+   */
+  void insert(int index, int count) {
+    int length = length();
+    if (count <= 0 || index >= length) {
+      return;
+    }
+    ensureCapacity(length + count);
+    // Walk down from the top word so every source bit is read before it's overwritten.
+    for (int i = (length + count - 1) >>> 6; i >= index >>> 6; i--) {
+      long keep = maskBelow(i, index);
+      long shifted = ~maskBelow(i, index + count);
+      words[i] = (words[i] & keep) | (bitsAt((i << 6) - count) & shifted);
+    }
+  }
+
+  /**
+   * Drops the {@code count} bits starting at {@code index}, shifting every bit above them down.
+   * Used when sections are removed.
+   */
+  void remove(int index, int count) {
+    if (count <= 0) {
+      return;
+    }
+    // Walk up from the bottom word so every source bit is read before it's overwritten.
+    for (int i = index >>> 6; i < words.length; i++) {
+      long keep = maskBelow(i, index);
+      words[i] = (words[i] & keep) | (bitsAt((i << 6) + count) & ~keep);
+    }
+  }
+
+  /** Moves the bit at {@code fromIndex} to {@code toIndex}, shifting the bits between them. */
+  void move(int fromIndex, int toIndex) {
+    boolean value = get(fromIndex);
+    remove(fromIndex, 1);
+    insert(toIndex, 1);
+    if (value) {
+      set(toIndex);
+    }
+  }
+
+  /** Reads the 64 bits starting at the given bit index, which may be negative. */
+  private long bitsAt(int bitIndex) {
+    if (bitIndex < 0) {
+      return bitIndex <= -64 || words.length == 0 ? 0 : words[0] << -bitIndex;
+    }
+    int wordIndex = bitIndex >>> 6;
+    int shift = bitIndex & 63;
+    if (wordIndex >= words.length) {
+      return 0;
+    }
+    long bits = words[wordIndex] >>> shift;
+    if (shift != 0 && wordIndex + 1 < words.length) {
+      bits |= words[wordIndex + 1] << (64 - shift);
+    }
+    return bits;
+  }
+
+  /** Returns a mask of the bits in the given word whose index is below {@code bitIndex}. */
+  private static long maskBelow(int wordIndex, int bitIndex) {
+    int relative = bitIndex - (wordIndex << 6);
+    if (relative <= 0) {
+      return 0;
+    } else if (relative >= 64) {
+      return -1L;
+    }
+    return (1L << relative) - 1;
+  }
+
+  private void ensureCapacity(int bitCount) {
+    int wordCount = (bitCount + 63) >>> 6;
+    if (words.length < wordCount) {
+      words = Arrays.copyOf(words, Math.max(wordCount, words.length * 2));
+    }
+  }
+}
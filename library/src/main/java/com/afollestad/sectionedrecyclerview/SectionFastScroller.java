@@ -0,0 +1,182 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.support.annotation.ColorInt;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.view.MotionEvent;
+
+/**
+ * A fast scroll thumb along the right edge of a vertical RecyclerView. Dragging it jumps to the
+ * header of the section under the thumb and shows that section's {@link
+ * SectionedRecyclerViewAdapter#getSectionLabel(int)} in a bubble. The drag fraction is mapped to
+ * a section through the position index in O(log S), so dragging never calls {@link
+ * SectionedRecyclerViewAdapter#getItemCount(int)}.
+ */
+public class SectionFastScroller extends RecyclerView.ItemDecoration
+    implements RecyclerView.OnItemTouchListener {
+
+  private static final int THUMB_WIDTH_DP = 6;
+  private static final int THUMB_HEIGHT_DP = 48;
+  private static final int TOUCH_WIDTH_DP = 32;
+  private static final int BUBBLE_SIZE_DP = 64;
+  private static final int LABEL_TEXT_SIZE_DP = 28;
+
+  private final SectionedRecyclerViewAdapter<?> adapter;
+  private final Paint thumbPaint;
+  private final Paint bubblePaint;
+  private final Paint labelPaint;
+  private final RectF thumbBounds;
+
+  private RecyclerView recyclerView;
+  private float thumbWidth;
+  private float thumbHeight;
+  private float touchWidth;
+  private float bubbleSize;
+  private boolean dragging;
+  private float dragFraction;
+  private int dragSection = -1;
+
+  public SectionFastScroller(SectionedRecyclerViewAdapter<?> adapter) {
+    this.adapter = adapter;
+    this.thumbPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    this.bubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    this.labelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    this.thumbBounds = new RectF();
+    thumbPaint.setColor(Color.GRAY);
+    bubblePaint.setColor(Color.DKGRAY);
+    labelPaint.setColor(Color.WHITE);
+    labelPaint.setTextAlign(Paint.Align.CENTER);
+  }
+
+  public void attachToRecyclerView(RecyclerView recyclerView) {
+    if (this.recyclerView == recyclerView) {
+      return;
+    }
+    if (this.recyclerView != null) {
+      this.recyclerView.removeItemDecoration(this);
+      this.recyclerView.removeOnItemTouchListener(this);
+    }
+    this.recyclerView = recyclerView;
+    if (recyclerView == null) {
+      return;
+    }
+    float density = recyclerView.getResources().getDisplayMetrics().density;
+    thumbWidth = THUMB_WIDTH_DP * density;
+    thumbHeight = THUMB_HEIGHT_DP * density;
+    touchWidth = TOUCH_WIDTH_DP * density;
+    bubbleSize = BUBBLE_SIZE_DP * density;
+    labelPaint.setTextSize(LABEL_TEXT_SIZE_DP * density);
+    recyclerView.addItemDecoration(this);
+    recyclerView.addOnItemTouchListener(this);
+  }
+
+  public void setThumbColor(@ColorInt int color) {
+    thumbPaint.setColor(color);
+  }
+
+  public void setBubbleColor(@ColorInt int color) {
+    bubblePaint.setColor(color);
+  }
+
+  public void setLabelColor(@ColorInt int color) {
+    labelPaint.setColor(color);
+  }
+
+  /** Returns the section at the given fraction (0 to 1) of the list's length. O(log S). */
+  public int getSectionForFraction(float fraction) {
+    int itemCount = adapter.getItemCount();
+    return adapter.getSectionForPosition((int) (clamp(fraction) * itemCount));
+  }
+
+  @Override
+  public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+    if (!isScrollable(parent)) {
+      return;
+    }
+    float fraction = dragging ? dragFraction : scrollFraction(parent);
+    float thumbTop = fraction * (parent.getHeight() - thumbHeight);
+    float right = parent.getWidth() - parent.getPaddingRight();
+    thumbBounds.set(right - thumbWidth, thumbTop, right, thumbTop + thumbHeight);
+    canvas.drawRoundRect(thumbBounds, thumbWidth / 2, thumbWidth / 2, thumbPaint);
+
+    if (!dragging || dragSection == -1) {
+      return;
+    }
+    String label = adapter.getSectionLabel(dragSection);
+    if (label == null) {
+      return;
+    }
+    float radius = bubbleSize / 2;
+    float centerX = right - touchWidth - radius;
+    float centerY = Math.max(radius, Math.min(thumbBounds.centerY(), parent.getHeight() - radius));
+    canvas.drawCircle(centerX, centerY, radius, bubblePaint);
+    float baseline = centerY - (labelPaint.descent() + labelPaint.ascent()) / 2;
+    canvas.drawText(label, centerX, baseline, labelPaint);
+  }
+
+  @Override
+  public boolean onInterceptTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+    if (event.getActionMasked() != MotionEvent.ACTION_DOWN
+        || !isScrollable(recyclerView)
+        || event.getX() < recyclerView.getWidth() - recyclerView.getPaddingRight() - touchWidth) {
+      return false;
+    }
+    dragging = true;
+    dragTo(recyclerView, event.getY());
+    return true;
+  }
+
+  @Override
+  public void onTouchEvent(RecyclerView recyclerView, MotionEvent event) {
+    if (!dragging) {
+      return;
+    }
+    switch (event.getActionMasked()) {
+      case MotionEvent.ACTION_MOVE:
+        dragTo(recyclerView, event.getY());
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        dragging = false;
+        dragSection = -1;
+        recyclerView.invalidate();
+        break;
+    }
+  }
+
+  @Override
+  public void onRequestDisallowInterceptTouchEvent(boolean disallowIntercept) {}
+
+  private void dragTo(RecyclerView recyclerView, float y) {
+    dragFraction = clamp((y - thumbHeight / 2) / (recyclerView.getHeight() - thumbHeight));
+    int section = getSectionForFraction(dragFraction);
+    if (section != dragSection) {
+      dragSection = section;
+      int headerIndex = adapter.getPositionForSection(section);
+      RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+      if (layoutManager instanceof LinearLayoutManager) {
+        ((LinearLayoutManager) layoutManager).scrollToPositionWithOffset(headerIndex, 0);
+      } else {
+        recyclerView.scrollToPosition(headerIndex);
+      }
+    }
+    recyclerView.invalidate();
+  }
+
+  private static boolean isScrollable(RecyclerView parent) {
+    return parent.computeVerticalScrollRange() > parent.computeVerticalScrollExtent();
+  }
+
+  private static float scrollFraction(RecyclerView parent) {
+    int scrollable = parent.computeVerticalScrollRange() - parent.computeVerticalScrollExtent();
+    return clamp((float) parent.computeVerticalScrollOffset() / scrollable);
+  }
+
+  private static float clamp(float fraction) {
+    return Math.max(0f, Math.min(fraction, 1f));
+  }
+}
@@ -0,0 +1,217 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.NonNull;
+
+/**
+ * An immutable layout of an adapter's sections: where each section starts, how many positions it
+ * takes up, which sections are collapsed and the total count. Build one off the main thread from
+ * counts read out of your own model, then publish it with {@link
+ * SectionedRecyclerViewAdapter#applyLayoutSnapshot(SectionLayoutSnapshot)}:
+ *
+ * <pre>{@code
+ * final SectionLayoutSnapshot.Builder builder = adapter.newLayoutSnapshotBuilder();
+ * executor.execute(new Runnable() {
+ *   public void run() {
+ *     final SectionLayoutSnapshot snapshot = builder.build(model.itemCounts());
+ *     mainHandler.post(new Runnable() {
+ *       public void run() {
+ *         adapter.applyLayoutSnapshot(snapshot);
+ *       }
+ *     });
+ *   }
+ * });
+ * }</pre>
+ *
+ * Publishing replaces the adapter's position index in O(1) and notifies the positions that changed
+ * from the layout the builder was created against, so the main thread never rebuilds the index or
+ * calls {@link SectionedRecyclerViewAdapter#getItemCount(int)} for every section.
+ */
+@SuppressWarnings("WeakerAccess")
+public final class SectionLayoutSnapshot {
+
+  static final int UPDATE_INSERT = 0;
+  static final int UPDATE_REMOVE = 1;
+
+  final int baseGeneration;
+  final boolean showHeadersForEmptySections;
+  final boolean showFooters;
+  final SectionBitSet collapsedSections;
+  /** The old index of each section if the builder remapped them, otherwise null. */
+  final int[] oldSectionForNew;
+
+  final int sectionCount;
+  final int[] itemCounts;
+  final int[] sizes;
+  final int[] starts;
+  final FenwickTree sizeTree;
+  final int itemCount;
+  /**
+   * Triples of update type, position and count that turn the builder's base layout into this one,
+   * in dispatch order. Null if the base layout wasn't known, in which case the whole data set has
+   * changed.
+   */
+  final int[] updates;
+
+  final int updateCount;
+
+  private SectionLayoutSnapshot(Builder builder, int[] itemCounts) {
+    this.baseGeneration = builder.baseGeneration;
+    this.showHeadersForEmptySections = builder.showHeadersForEmptySections;
+    this.showFooters = builder.showFooters;
+    this.collapsedSections = builder.collapsedSections;
+    this.oldSectionForNew = builder.oldSectionForNew;
+    this.sectionCount = itemCounts.length;
+    this.itemCounts = itemCounts.clone();
+    this.sizes = new int[sectionCount];
+    this.starts = new int[sectionCount];
+    this.sizeTree = new FenwickTree();
+
+    int count = 0;
+    for (int s = 0; s < sectionCount; s++) {
+      starts[s] = count;
+      sizes[s] =
+          PositionManager.sizeOf(
+              this.itemCounts[s],
+              collapsedSections.get(s),
+              showHeadersForEmptySections,
+              showFooters);
+      count += sizes[s];
+    }
+    sizeTree.build(sizes, sectionCount);
+    this.itemCount = count;
+
+    if (builder.baseSizes != null
+        && builder.oldSectionForNew == null
+        && builder.baseSectionCount == sectionCount) {
+      this.updates = new int[sectionCount * 3];
+      this.updateCount = diffSizes(builder.baseItemCounts, builder.baseSizes);
+    } else {
+      this.updates = null;
+      this.updateCount = 0;
+    }
+  }
+
+  /**
+   * Records the positions inserted and removed in each section whose size changed, back to front so
+   * that each update's positions are still those of the base layout. Items are assumed to have been
+   * added or dropped at the end of their section.
+   */
+  private int diffSizes(int[] baseItemCounts, int[] baseSizes) {
+    int baseStart = 0;
+    for (int s = 0; s < sectionCount; s++) {
+      baseStart += baseSizes[s];
+    }
+    int count = 0;
+    for (int s = sectionCount - 1; s >= 0; s--) {
+      int oldSize = baseSizes[s];
+      int newSize = sizes[s];
+      baseStart -= oldSize;
+      if (oldSize == newSize) {
+        continue;
+      }
+      int type = newSize > oldSize ? UPDATE_INSERT : UPDATE_REMOVE;
+      if (oldSize == 0 || newSize == 0) {
+        updates[count] = type;
+        updates[count + 1] = baseStart;
+        updates[count + 2] = Math.max(oldSize, newSize);
+      } else {
+        updates[count] = type;
+        updates[count + 1] = baseStart + 1 + Math.min(baseItemCounts[s], itemCounts[s]);
+        updates[count + 2] = Math.abs(newSize - oldSize);
+      }
+      count += 3;
+    }
+    return count;
+  }
+
+  public int getSectionCount() {
+    return sectionCount;
+  }
+
+  /** Returns the total number of positions, including headers and footers. */
+  public int getItemCount() {
+    return itemCount;
+  }
+
+  public int getItemCount(int section) {
+    checkSection(section);
+    return itemCounts[section];
+  }
+
+  /** Returns the absolute position a section starts at, whether or not it's visible. */
+  public int getSectionStart(int section) {
+    checkSection(section);
+    return starts[section];
+  }
+
+  /** Returns the number of positions a section takes up, including its header and footer. */
+  public int getSectionSize(int section) {
+    checkSection(section);
+    return sizes[section];
+  }
+
+  public boolean isSectionExpanded(int section) {
+    checkSection(section);
+    return !collapsedSections.get(section);
+  }
+
+  private void checkSection(int section) {
+    if (section < 0 || section >= sectionCount) {
+      throw new IllegalArgumentException(
+          "Section " + section + " is out of range of existing sections.");
+    }
+  }
+
+  /**
+   * Captures the adapter's settings, collapsed state and current layout on the main thread, so a
+   * snapshot can be built from them on any other thread. Get one from {@link
+   * SectionedRecyclerViewAdapter#newLayoutSnapshotBuilder()}.
+   */
+  public static final class Builder {
+
+    final int baseGeneration;
+    final boolean showHeadersForEmptySections;
+    final boolean showFooters;
+    final int baseSectionCount;
+    final int[] baseItemCounts;
+    final int[] baseSizes;
+    SectionBitSet collapsedSections;
+    int[] oldSectionForNew;
+
+    Builder(
+        int baseGeneration,
+        boolean showHeadersForEmptySections,
+        boolean showFooters,
+        SectionBitSet collapsedSections,
+        int baseSectionCount,
+        int[] baseItemCounts,
+        int[] baseSizes) {
+      this.baseGeneration = baseGeneration;
+      this.showHeadersForEmptySections = showHeadersForEmptySections;
+      this.showFooters = showFooters;
+      this.collapsedSections = collapsedSections;
+      this.baseSectionCount = baseSectionCount;
+      this.baseItemCounts = baseItemCounts;
+      this.baseSizes = baseSizes;
+    }
+
+    /**
+     * Carries collapsed state over to a reordered set of sections, given the old index of each new
+     * section or -1 for new ones.
+     */
+    Builder remapSections(int[] oldSectionForNew) {
+      this.collapsedSections = collapsedSections.remap(oldSectionForNew);
+      this.oldSectionForNew = oldSectionForNew;
+      return this;
+    }
+
+    /**
+     * Lays out sections with the given item counts, in O(S). Can be called on any thread; the array
+     * is copied, so it can be reused afterwards.
+     */
+    @NonNull
+    public SectionLayoutSnapshot build(@NonNull int[] itemCounts) {
+      return new SectionLayoutSnapshot(this, itemCounts);
+    }
+  }
+}
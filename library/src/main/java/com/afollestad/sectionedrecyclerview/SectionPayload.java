@@ -0,0 +1,10 @@
+package com.afollestad.sectionedrecyclerview;
+
+/**
+ * Payloads the adapter attaches to its own change notifications, so a bind can update only what
+ * changed rather than the whole view.
+ */
+public enum SectionPayload {
+  /** A section was expanded or collapsed; only the header's expanded state has changed. */
+  EXPANDED_STATE_CHANGED
+}
@@ -0,0 +1,168 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.support.annotation.Nullable;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Creates holders for the headers, footers and item view types of the sections just ahead of the
+ * scroll direction while the main thread is idle, and leaves them in the RecyclerView's {@link
+ * RecyclerView.RecycledViewPool}. When a fling crosses into the next section its header is then
+ * taken from the pool rather than inflated inside a frame.
+ *
+ * <p>Upcoming sections are found through the position index in O(log S), and each view type is
+ * only created if the pool has none left. At most one holder is created per idle pass, and the
+ * sections are only looked at again once the edge of the screen reaches a new one.
+ */
+public class SectionPrefetcher extends RecyclerView.OnScrollListener
+    implements MessageQueue.IdleHandler {
+
+  private static final int DEFAULT_LOOKAHEAD_SECTIONS = 2;
+
+  private final SectionedRecyclerViewAdapter<?> adapter;
+  private final int lookaheadSections;
+  /** The distinct view types of the upcoming sections, in the order they'll be shown. */
+  private int[] viewTypes;
+
+  private int viewTypeCount;
+  private RecyclerView recyclerView;
+  private int edgeSection = -1;
+  private int direction;
+  private boolean idleScheduled;
+
+  public SectionPrefetcher(SectionedRecyclerViewAdapter<?> adapter) {
+    this(adapter, DEFAULT_LOOKAHEAD_SECTIONS);
+  }
+
+  /** @param lookaheadSections how many sections past the edge of the screen to prepare. */
+  public SectionPrefetcher(SectionedRecyclerViewAdapter<?> adapter, int lookaheadSections) {
+    if (lookaheadSections < 1) {
+      throw new IllegalArgumentException(
+          "At least 1 section must be looked ahead, was " + lookaheadSections);
+    }
+    this.adapter = adapter;
+    this.lookaheadSections = lookaheadSections;
+    // A header, first item and footer for the edge section and each one ahead of it.
+    this.viewTypes = new int[3 * (lookaheadSections + 1)];
+  }
+
+  public void attachToRecyclerView(@Nullable RecyclerView recyclerView) {
+    if (this.recyclerView == recyclerView) {
+      return;
+    }
+    if (this.recyclerView != null) {
+      this.recyclerView.removeOnScrollListener(this);
+    }
+    this.recyclerView = recyclerView;
+    edgeSection = -1;
+    if (recyclerView != null) {
+      recyclerView.addOnScrollListener(this);
+    }
+  }
+
+  @Override
+  public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+    int delta = dy != 0 ? dy : dx;
+    int childCount = recyclerView.getChildCount();
+    if (delta == 0 || childCount == 0) {
+      return;
+    }
+    View edgeChild = recyclerView.getChildAt(delta > 0 ? childCount - 1 : 0);
+    int edgePosition = recyclerView.getChildAdapterPosition(edgeChild);
+    if (edgePosition != RecyclerView.NO_POSITION && lookAheadFrom(edgePosition, delta)) {
+      scheduleIdle();
+    }
+  }
+
+  /**
+   * Collects the view types of the sections ahead of an edge position, scrolling in the direction
+   * of {@code delta}. Returns false if the edge is still in the same section as last time, in which
+   * case there's nothing new to prepare.
+   */
+  boolean lookAheadFrom(int edgePosition, int delta) {
+    int section = adapter.getSectionForPosition(edgePosition);
+    int newDirection = delta > 0 ? 1 : -1;
+    if (section == edgeSection && newDirection == direction) {
+      return false;
+    }
+    edgeSection = section;
+    direction = newDirection;
+
+    PositionManager positionManager = adapter.getPositionManager();
+    viewTypeCount = 0;
+    for (int i = 0; i <= lookaheadSections; i++) {
+      int s = section + i * direction;
+      if (s < 0 || s >= positionManager.sectionCount()) {
+        break;
+      }
+      int sectionSize = positionManager.sectionSize(s);
+      if (sectionSize == 0) {
+        continue;
+      }
+      int sectionStart = positionManager.sectionStart(s);
+      addViewType(sectionStart);
+      if (sectionSize > 1) {
+        addViewType(sectionStart + 1);
+      }
+      int footerIndex = positionManager.sectionFooterIndex(s);
+      if (footerIndex != -1) {
+        addViewType(footerIndex);
+      }
+    }
+    return viewTypeCount > 0;
+  }
+
+  @SuppressWarnings("deprecation")
+  private void addViewType(int position) {
+    int viewType = adapter.getItemViewType(position);
+    for (int i = 0; i < viewTypeCount; i++) {
+      if (viewTypes[i] == viewType) {
+        return;
+      }
+    }
+    viewTypes[viewTypeCount++] = viewType;
+  }
+
+  private void scheduleIdle() {
+    if (!idleScheduled) {
+      idleScheduled = true;
+      Looper.myQueue().addIdleHandler(this);
+    }
+  }
+
+  /** Creates one missing holder per pass, staying registered until there are none left. */
+  @Override
+  public boolean queueIdle() {
+    if (recyclerView == null
+        || !createNextViewType(recyclerView.getRecycledViewPool(), recyclerView)) {
+      idleScheduled = false;
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Creates a holder for the first upcoming view type the pool has none of, returning false if
+   * there was none left to create.
+   */
+  boolean createNextViewType(RecyclerView.RecycledViewPool pool, ViewGroup parent) {
+    for (int i = 0; i < viewTypeCount; i++) {
+      int viewType = viewTypes[i];
+      // Borrowed and put straight back, since pools don't report their counts on every version.
+      RecyclerView.ViewHolder pooled = pool.getRecycledView(viewType);
+      if (pooled != null) {
+        pool.putRecycledView(pooled);
+        continue;
+      }
+      pool.putRecycledView(adapter.createViewHolder(parent, viewType));
+      // Marked done so the same type isn't created again if it's taken before the next pass.
+      viewTypeCount--;
+      System.arraycopy(viewTypes, i + 1, viewTypes, i, viewTypeCount - i);
+      return true;
+    }
+    return false;
+  }
+}
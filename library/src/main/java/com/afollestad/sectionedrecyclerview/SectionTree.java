@@ -0,0 +1,288 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+import java.util.Arrays;
+
+/**
+ * The position index of a hierarchy of sections, where each section has a header followed by its
+ * child sections, or by its items at the deepest level. Every section with child sections keeps a
+ * {@link FenwickTree} over their sizes, so converting between positions and paths, collapsing a
+ * subtree and resizing a section are all O(depth * log n).
+ *
+ * <p>A path is an array holding a section's index at each level, of which only the first {@code
+ * depth} entries are read. Depth 0 is the root, which has no header.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class SectionTree {
+
+  private static final Node[] NO_CHILDREN = new Node[0];
+
+  private final Node root;
+  private int[] buildPath;
+  private int[][] buildSizes;
+  private int levelCount;
+  private int itemCount;
+  private int generation;
+  private boolean hasInvalidated;
+  private boolean dirty;
+
+  SectionTree() {
+    this.root = new Node(null, 0);
+    this.buildPath = new int[0];
+    this.buildSizes = new int[0][];
+  }
+
+  int levelCount() {
+    return levelCount;
+  }
+
+  /** Changes whenever the layout does, so that things derived from it know to recompute. */
+  int generation() {
+    return generation;
+  }
+
+  /**
+   * Marks the layout as stale, the next call to {@link #itemCount(NestedItemProvider)} rebuilds
+   * it.
+   */
+  void markDirty() {
+    dirty = true;
+  }
+
+  boolean isDirty() {
+    return dirty || !hasInvalidated;
+  }
+
+  /** Returns the total item count, only rebuilding the layout if it has been marked stale. */
+  int itemCount(NestedItemProvider provider) {
+    if (isDirty()) {
+      invalidate(provider);
+    }
+    return itemCount;
+  }
+
+  /**
+   * Rebuilds the whole tree from the provider in O(sections). Sections keep their collapsed state
+   * by path, the same way flat sections keep it by index.
+   */
+  void invalidate(NestedItemProvider provider) {
+    hasInvalidated = true;
+    dirty = false;
+    levelCount = provider.getLevelCount();
+    if (levelCount < 1) {
+      throw new IllegalArgumentException("Level count must be at least 1, got " + levelCount);
+    }
+    if (buildPath.length < levelCount) {
+      buildPath = new int[levelCount];
+      buildSizes = Arrays.copyOf(buildSizes, levelCount);
+    }
+    build(root, provider);
+    itemCount = root.size;
+    generation++;
+  }
+
+  private void build(Node node, NestedItemProvider provider) {
+    int depth = node.depth;
+    int childCount = provider.getChildCount(buildPath, depth);
+    node.childCount = childCount;
+    if (depth == levelCount) {
+      node.children = NO_CHILDREN;
+      node.childSizes = null;
+      node.contentSize = childCount;
+    } else {
+      if (node.children.length < childCount) {
+        node.children = Arrays.copyOf(node.children, childCount);
+      }
+      // Sections past the end are gone, along with their collapsed state.
+      Arrays.fill(node.children, childCount, node.children.length, null);
+      int[] sizes = buildSizes[depth];
+      if (sizes == null || sizes.length < childCount) {
+        sizes = new int[Math.max(childCount, 16)];
+        buildSizes[depth] = sizes;
+      }
+      int contentSize = 0;
+      for (int i = 0; i < childCount; i++) {
+        Node child = node.children[i];
+        if (child == null) {
+          child = new Node(node, depth + 1);
+          node.children[i] = child;
+        }
+        child.index = i;
+        buildPath[depth] = i;
+        build(child, provider);
+        sizes[i] = child.size;
+        contentSize += child.size;
+      }
+      if (node.childSizes == null) {
+        node.childSizes = new FenwickTree();
+      }
+      node.childSizes.build(sizes, childCount);
+      node.contentSize = contentSize;
+    }
+    node.size = node.sizeOf();
+  }
+
+  /**
+   * Finds what's at an absolute position, writing the path of its section into {@code outPath}.
+   * Returns the depth of that section and the position relative to its first item, packed with
+   * {@link ItemCoord#pack(int, int)}; the relative position is -1 for headers. Returns {@code
+   * pack(-1, -1)} if the position is out of range. Doesn't allocate.
+   */
+  long locate(int absolutePosition, int[] outPath) {
+    if (absolutePosition < 0 || absolutePosition >= itemCount) {
+      return ItemCoord.pack(-1, -1);
+    }
+    Node node = root;
+    int remaining = absolutePosition;
+    while (true) {
+      if (node.depth > 0) {
+        if (remaining == 0) {
+          return ItemCoord.pack(node.depth, -1);
+        }
+        remaining--;
+      }
+      if (node.depth == levelCount) {
+        return ItemCoord.pack(node.depth, remaining);
+      }
+      int child = node.childSizes.indexOf(remaining);
+      remaining -= node.childSizes.prefixSum(child);
+      outPath[node.depth] = child;
+      node = node.children[child];
+    }
+  }
+
+  /**
+   * Returns the absolute position of a section's header, or -1 if one of its ancestors is
+   * collapsed.
+   */
+  int headerPosition(int[] path, int depth) {
+    checkPath(path, depth);
+    if (depth == 0) {
+      return -1;
+    }
+    Node node = root;
+    int position = 0;
+    for (int d = 0; d < depth; d++) {
+      if (d > 0) {
+        if (node.collapsed) {
+          return -1;
+        }
+        position++;
+      }
+      position += node.childSizes.prefixSum(path[d]);
+      node = node.children[path[d]];
+    }
+    return position;
+  }
+
+  /** Returns the number of positions a section takes up, including its header. */
+  int sectionSize(int[] path, int depth) {
+    return node(path, depth).size;
+  }
+
+  /** Returns the number of child sections, or items at the deepest level. */
+  int childCount(int[] path, int depth) {
+    return node(path, depth).childCount;
+  }
+
+  boolean isCollapsed(int[] path, int depth) {
+    return node(path, depth).collapsed;
+  }
+
+  void setCollapsed(int[] path, int depth, boolean collapsed) {
+    if (depth == 0) {
+      throw new IllegalArgumentException("The root can't be collapsed.");
+    }
+    Node node = node(path, depth);
+    if (node.collapsed != collapsed) {
+      node.collapsed = collapsed;
+      resize(node);
+    }
+  }
+
+  /** Updates the item count of a section at the deepest level in place, in O(depth * log n). */
+  void updateItemCount(int[] path, int count) {
+    if (isDirty()) {
+      return;
+    }
+    Node node = node(path, levelCount);
+    node.childCount = count;
+    node.contentSize = count;
+    resize(node);
+  }
+
+  /** Propagates a change in a section's content size up through its ancestors. */
+  private void resize(Node node) {
+    int delta = node.sizeOf() - node.size;
+    while (delta != 0) {
+      node.size += delta;
+      Node parent = node.parent;
+      if (parent == null) {
+        break;
+      }
+      parent.childSizes.add(node.index, delta);
+      parent.contentSize += delta;
+      node = parent;
+      delta = node.sizeOf() - node.size;
+    }
+    itemCount = root.size;
+    generation++;
+  }
+
+  private Node node(int[] path, int depth) {
+    checkPath(path, depth);
+    Node node = root;
+    for (int d = 0; d < depth; d++) {
+      node = node.children[path[d]];
+    }
+    return node;
+  }
+
+  private void checkPath(int[] path, int depth) {
+    if (depth < 0 || depth > levelCount) {
+      throw new IllegalArgumentException(
+          "Depth " + depth + " is out of range of " + levelCount + " levels.");
+    }
+    Node node = root;
+    for (int d = 0; d < depth; d++) {
+      if (path[d] < 0 || path[d] >= node.childCount) {
+        throw new IllegalArgumentException(
+            "Section path "
+                + Arrays.toString(Arrays.copyOf(path, depth))
+                + " is out of range of existing sections.");
+      }
+      node = node.children[path[d]];
+    }
+  }
+
+  private static class Node {
+
+    final Node parent;
+    final int depth;
+    int index;
+    Node[] children;
+    /** Sizes of the child sections; null at the deepest level, where every item has size 1. */
+    FenwickTree childSizes;
+
+    int childCount;
+    /** The number of positions under the header while expanded. */
+    int contentSize;
+    /** The number of positions taken up, including the header. */
+    int size;
+
+    boolean collapsed;
+
+    Node(Node parent, int depth) {
+      this.parent = parent;
+      this.depth = depth;
+      this.children = NO_CHILDREN;
+    }
+
+    int sizeOf() {
+      if (depth == 0) {
+        return contentSize;
+      }
+      return collapsed ? 1 : contentSize + 1;
+    }
+  }
+}
@@ -0,0 +1,403 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.util.ListUpdateCallback;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Holds the sections shown by a {@link SectionedRecyclerViewAdapter} and swaps in new ones with the
+ * minimal set of change notifications, computed on a background thread.
+ *
+ * <p>Sections are matched by key. Sections that keep their relative order are diffed item by item
+ * with {@link DiffUtil}, so a change in one section never costs a diff over the whole flattened
+ * list. Removed sections, inserted sections and sections that changed order are removed and
+ * inserted whole. Collapsed sections stay collapsed wherever they end up.
+ *
+ * <p>Your adapter should read its sections from {@link #getCurrentList()}, for example by
+ * returning {@link #getSectionCount()} and {@link #getItemCount(int)} from its own overrides.
+ *
+ * @param <S> the section type.
+ * @param <T> the item type.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class SectionedListDiffer<S, T> {
+
+  private final SectionedRecyclerViewAdapter<?> adapter;
+  private final Callback<S, T> callback;
+  private final Executor mainThreadExecutor;
+  private final Executor diffExecutor;
+
+  private List<S> currentList = Collections.emptyList();
+  private int maxScheduledGeneration;
+
+  public SectionedListDiffer(
+      @NonNull SectionedRecyclerViewAdapter<?> adapter, @NonNull Callback<S, T> callback) {
+    this(adapter, callback, DefaultExecutors.mainThread(), DefaultExecutors.background());
+  }
+
+  public SectionedListDiffer(
+      @NonNull SectionedRecyclerViewAdapter<?> adapter,
+      @NonNull Callback<S, T> callback,
+      @NonNull Executor mainThreadExecutor,
+      @NonNull Executor diffExecutor) {
+    this.adapter = adapter;
+    this.callback = callback;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.diffExecutor = diffExecutor;
+  }
+
+  /** Returns the sections currently shown. The list must not be modified. */
+  @NonNull
+  public List<S> getCurrentList() {
+    return currentList;
+  }
+
+  public int getSectionCount() {
+    return currentList.size();
+  }
+
+  public int getItemCount(int section) {
+    return callback.getItems(currentList.get(section)).size();
+  }
+
+  public S getSection(int section) {
+    return currentList.get(section);
+  }
+
+  public T getItem(int section, int relativePosition) {
+    return callback.getItems(currentList.get(section)).get(relativePosition);
+  }
+
+  /**
+   * Replaces the current sections. The diff runs on the diff executor and is applied on the main
+   * thread; if another list is submitted before it finishes, its result is discarded. Neither the
+   * list nor the item lists of its sections may be modified after they're submitted.
+   */
+  public void submitList(@Nullable final List<S> newList) {
+    final int runGeneration = ++maxScheduledGeneration;
+    if (newList == currentList) {
+      return;
+    }
+    if (newList == null || newList.isEmpty() || currentList.isEmpty()) {
+      // Nothing to diff against, so collapsed state can't carry over either.
+      currentList = newList != null ? newList : Collections.<S>emptyList();
+      adapter.resetSections();
+      adapter.notifyDataSetChanged();
+      return;
+    }
+    final List<S> oldList = currentList;
+    final SectionLayoutSnapshot.Builder layoutBuilder = adapter.newLayoutSnapshotBuilder();
+    diffExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            final SectionedDiff diff = calculateDiff(oldList, newList);
+            // The new layout is built here too, so applying the diff doesn't rebuild it.
+            final SectionLayoutSnapshot layout =
+                layoutBuilder.remapSections(diff.oldSectionForNew).build(diff.newItemCounts);
+            mainThreadExecutor.execute(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    if (maxScheduledGeneration == runGeneration) {
+                      dispatchDiff(newList, diff, layout);
+                    }
+                  }
+                });
+          }
+        });
+  }
+
+  private SectionedDiff calculateDiff(List<S> oldList, List<S> newList) {
+    int oldCount = oldList.size();
+    int newCount = newList.size();
+    SectionedDiff diff = new SectionedDiff(oldCount, newCount);
+
+    Map<Object, Integer> newIndexByKey = new HashMap<>(newCount);
+    for (int n = newCount - 1; n >= 0; n--) {
+      newIndexByKey.put(callback.getSectionKey(newList.get(n)), n);
+    }
+    // Sections present in both lists, in old order, with their new indices.
+    int[] matchedOld = new int[Math.min(oldCount, newCount)];
+    int[] matchedNew = new int[matchedOld.length];
+    int matchedCount = 0;
+    for (int o = 0; o < oldCount; o++) {
+      Integer n = newIndexByKey.remove(callback.getSectionKey(oldList.get(o)));
+      if (n != null) {
+        diff.oldSectionForNew[n] = o;
+        matchedOld[matchedCount] = o;
+        matchedNew[matchedCount] = n;
+        matchedCount++;
+      }
+    }
+
+    // The longest run of matched sections whose new indices are still increasing keeps its place;
+    // every other matched section has moved.
+    int[] stable = longestIncreasingSubsequence(matchedNew, matchedCount);
+    for (int i : stable) {
+      int o = matchedOld[i];
+      int n = matchedNew[i];
+      diff.newSectionForOld[o] = n;
+      S oldSection = oldList.get(o);
+      S newSection = newList.get(n);
+      diff.sectionChanged[o] = !callback.areSectionContentsTheSame(oldSection, newSection);
+      diff.itemDiffs[o] =
+          DiffUtil.calculateDiff(
+              new ItemDiffCallback<>(
+                  callback, callback.getItems(oldSection), callback.getItems(newSection)));
+    }
+    for (int n = 0; n < newCount; n++) {
+      diff.newItemCounts[n] = callback.getItems(newList.get(n)).size();
+    }
+    return diff;
+  }
+
+  /** Returns the indices of a longest strictly increasing subsequence, in O(n log n). */
+  private static int[] longestIncreasingSubsequence(int[] values, int count) {
+    int[] tailIndices = new int[count];
+    int[] previous = new int[count];
+    int length = 0;
+    for (int i = 0; i < count; i++) {
+      int low = 0;
+      int high = length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (values[tailIndices[mid]] < values[i]) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      previous[i] = low > 0 ? tailIndices[low - 1] : -1;
+      tailIndices[low] = i;
+      if (low == length) {
+        length++;
+      }
+    }
+    int[] result = new int[length];
+    int index = length > 0 ? tailIndices[length - 1] : -1;
+    for (int i = length - 1; i >= 0; i--) {
+      result[i] = index;
+      index = previous[index];
+    }
+    return result;
+  }
+
+  private void dispatchDiff(List<S> newList, SectionedDiff diff, SectionLayoutSnapshot layout) {
+    PositionManager positionManager = adapter.getPositionManager();
+    int oldCount = diff.newSectionForOld.length;
+    int newCount = diff.oldSectionForNew.length;
+    int[] oldStarts = new int[oldCount];
+    int[] oldSizes = new int[oldCount];
+    for (int o = 0; o < oldCount; o++) {
+      oldStarts[o] = positionManager.sectionStart(o);
+      oldSizes[o] = positionManager.sectionSize(o);
+    }
+
+    currentList = newList;
+    positionManager.applySnapshot(layout, adapter);
+    int[] newSizes = new int[newCount];
+    for (int n = 0; n < newCount; n++) {
+      newSizes[n] = positionManager.sectionSize(n);
+    }
+
+    adapter.beginIndexedChange();
+    try {
+      dispatchUpdates(diff, oldStarts, oldSizes, newSizes);
+    } finally {
+      adapter.endIndexedChange();
+    }
+  }
+
+  private void dispatchUpdates(
+      SectionedDiff diff, int[] oldStarts, int[] oldSizes, int[] newSizes) {
+    int oldCount = diff.newSectionForOld.length;
+    int newCount = diff.oldSectionForNew.length;
+    // Removed and moved sections go first, back to front so earlier positions stay put.
+    for (int o = oldCount - 1; o >= 0; o--) {
+      if (diff.newSectionForOld[o] == -1 && oldSizes[o] > 0) {
+        adapter.notifyItemRangeRemoved(oldStarts[o], oldSizes[o]);
+      }
+    }
+
+    // Then the sections that kept their place are updated, again back to front.
+    int[] stableStarts = new int[oldCount];
+    int removedBefore = 0;
+    for (int o = 0; o < oldCount; o++) {
+      stableStarts[o] = oldStarts[o] - removedBefore;
+      if (diff.newSectionForOld[o] == -1) {
+        removedBefore += oldSizes[o];
+      }
+    }
+    for (int o = oldCount - 1; o >= 0; o--) {
+      int n = diff.newSectionForOld[o];
+      if (n != -1) {
+        dispatchSectionDiff(diff, o, stableStarts[o], oldSizes[o], newSizes[n]);
+      }
+    }
+
+    // Finally inserted and moved sections are added front to back, into their final positions.
+    int start = 0;
+    for (int n = 0; n < newCount; n++) {
+      int o = diff.oldSectionForNew[n];
+      boolean stable = o != -1 && diff.newSectionForOld[o] == n;
+      if (!stable && newSizes[n] > 0) {
+        adapter.notifyItemRangeInserted(start, newSizes[n]);
+      }
+      start += newSizes[n];
+    }
+  }
+
+  private void dispatchSectionDiff(
+      SectionedDiff diff, int oldSection, int sectionStart, int oldSize, int newSize) {
+    boolean itemsShown = oldSize > 1 && newSize > 1;
+    boolean collapsed = oldSize == 1 && newSize == 1;
+    if (!itemsShown && !collapsed) {
+      // The section is appearing or disappearing, or was empty, so swap it whole.
+      if (oldSize > 0) {
+        adapter.notifyItemRangeRemoved(sectionStart, oldSize);
+      }
+      if (newSize > 0) {
+        adapter.notifyItemRangeInserted(sectionStart, newSize);
+      }
+      return;
+    }
+    if (itemsShown) {
+      diff.itemDiffs[oldSection].dispatchUpdatesTo(new OffsetUpdateCallback(sectionStart + 1));
+    }
+    if (diff.sectionChanged[oldSection]) {
+      adapter.notifyItemChanged(sectionStart);
+      if (itemsShown && adapter.showFooters()) {
+        adapter.notifyItemChanged(sectionStart + newSize - 1);
+      }
+    }
+  }
+
+  /** Forwards item updates inside a section to the adapter, shifted to absolute positions. */
+  private class OffsetUpdateCallback implements ListUpdateCallback {
+
+    private final int offset;
+
+    OffsetUpdateCallback(int offset) {
+      this.offset = offset;
+    }
+
+    @Override
+    public void onInserted(int position, int count) {
+      adapter.notifyItemRangeInserted(offset + position, count);
+    }
+
+    @Override
+    public void onRemoved(int position, int count) {
+      adapter.notifyItemRangeRemoved(offset + position, count);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+      adapter.notifyItemMoved(offset + fromPosition, offset + toPosition);
+    }
+
+    @Override
+    public void onChanged(int position, int count, Object payload) {
+      adapter.notifyItemRangeChanged(offset + position, count, payload);
+    }
+  }
+
+  private static class SectionedDiff {
+
+    /** The new index of each old section that kept its place, or -1 if it moved or was removed. */
+    final int[] newSectionForOld;
+    /** The old index of each new section, or -1 if it was inserted. */
+    final int[] oldSectionForNew;
+
+    final int[] newItemCounts;
+    final boolean[] sectionChanged;
+    final DiffUtil.DiffResult[] itemDiffs;
+
+    SectionedDiff(int oldCount, int newCount) {
+      this.newSectionForOld = new int[oldCount];
+      this.oldSectionForNew = new int[newCount];
+      this.newItemCounts = new int[newCount];
+      this.sectionChanged = new boolean[oldCount];
+      this.itemDiffs = new DiffUtil.DiffResult[oldCount];
+      Arrays.fill(newSectionForOld, -1);
+      Arrays.fill(oldSectionForNew, -1);
+    }
+  }
+
+  private static class ItemDiffCallback<S, T> extends DiffUtil.Callback {
+
+    private final Callback<S, T> callback;
+    private final List<T> oldItems;
+    private final List<T> newItems;
+
+    ItemDiffCallback(Callback<S, T> callback, List<T> oldItems, List<T> newItems) {
+      this.callback = callback;
+      this.oldItems = oldItems;
+      this.newItems = newItems;
+    }
+
+    @Override
+    public int getOldListSize() {
+      return oldItems.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+      return newItems.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+      return callback.areItemsTheSame(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+      return callback.areContentsTheSame(
+          oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+    }
+
+    @Override
+    public Object getChangePayload(int oldItemPosition, int newItemPosition) {
+      return callback.getChangePayload(oldItems.get(oldItemPosition), newItems.get(newItemPosition));
+    }
+  }
+
+  /**
+   * Tells a {@link SectionedListDiffer} how to identify and compare sections and items. Every
+   * method is called on the diff executor, and {@link #getItems(Object)} on the main thread too.
+   */
+  public abstract static class Callback<S, T> {
+
+    /** Returns a key identifying a section across lists, compared with equals() and hashCode(). */
+    public abstract Object getSectionKey(S section);
+
+    /**
+     * Returns a section's items. It's called on the main thread for every item count and item the
+     * adapter reads, and on the diff executor while a diff runs, so it has to be cheap, must not
+     * block, and has to be safe to call from both threads at once. Returning a list the section
+     * already holds is best. The list must not be modified once its section has been submitted.
+     */
+    public abstract List<T> getItems(S section);
+
+    /** Whether a section's header and footer would look the same for both versions. */
+    public abstract boolean areSectionContentsTheSame(S oldSection, S newSection);
+
+    public abstract boolean areItemsTheSame(T oldItem, T newItem);
+
+    public abstract boolean areContentsTheSame(T oldItem, T newItem);
+
+    @Nullable
+    public Object getChangePayload(T oldItem, T newItem) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,390 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.support.annotation.WorkerThread;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the items of a {@link SectionedRecyclerViewAdapter}'s sections in pages, on a background
+ * thread, as they come close to being shown.
+ *
+ * <p>Each section declares its size up front, which may be an estimate. Items that haven't loaded
+ * yet are returned as null from {@link #getItem(int, int)}, so they can be bound as placeholders;
+ * asking for one loads the pages around it. When a page arrives only its own positions are
+ * notified as changed. A page that comes back short ends its section there, and a full page past
+ * the estimated end grows it. A page that fails to load is left as placeholders, and is loaded
+ * again the next time one of its items is asked for.
+ *
+ * <p>Every section keeps at most a fixed number of pages, dropping the least recently used one to
+ * make room. Dropped items turn back into placeholders and are loaded again when they're next
+ * shown.
+ *
+ * <p>Your adapter should read its counts from the pager, for example by returning {@link
+ * #getSectionCount()} and {@link #getItemCount(int)} from its own overrides. A new pager has no
+ * sections until {@link #refresh()} is called, which has to be done once the adapter is ready.
+ * Every method has to be called on the main thread.
+ *
+ * @param <T> the item type.
+ */
+@SuppressWarnings({"WeakerAccess", "unused"})
+public class SectionedPager<T> {
+
+  public static final int DEFAULT_PAGE_SIZE = 20;
+  public static final int DEFAULT_MAX_PAGES_PER_SECTION = 8;
+
+  private static final String TAG = "SectionedPager";
+
+  private final SectionedRecyclerViewAdapter<?> adapter;
+  private final Source<T> source;
+  private final int pageSize;
+  private final int maxPagesPerSection;
+  private final Executor mainThreadExecutor;
+  private final Executor loadExecutor;
+  private int prefetchDistance;
+
+  private int[] sectionSizes = new int[0];
+  private List<SectionPages<T>> sectionPages = new ArrayList<>();
+  /** Bumped by {@link #refresh()}, so pages requested before it are dropped when they arrive. */
+  private int generation;
+
+  /**
+   * Creates a pager with no sections. Call {@link #refresh()} to read them from the source; it
+   * isn't called here, since the adapter is usually still being constructed.
+   */
+  public SectionedPager(
+      @NonNull SectionedRecyclerViewAdapter<?> adapter, @NonNull Source<T> source) {
+    this(adapter, source, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES_PER_SECTION);
+  }
+
+  /** Like {@link #SectionedPager(SectionedRecyclerViewAdapter, Source)}, with custom limits. */
+  public SectionedPager(
+      @NonNull SectionedRecyclerViewAdapter<?> adapter,
+      @NonNull Source<T> source,
+      int pageSize,
+      int maxPagesPerSection) {
+    this(
+        adapter,
+        source,
+        pageSize,
+        maxPagesPerSection,
+        DefaultExecutors.mainThread(),
+        DefaultExecutors.background());
+  }
+
+  /**
+   * Like {@link #SectionedPager(SectionedRecyclerViewAdapter, Source)}, with custom page limits and
+   * executors.
+   */
+  public SectionedPager(
+      @NonNull SectionedRecyclerViewAdapter<?> adapter,
+      @NonNull Source<T> source,
+      int pageSize,
+      int maxPagesPerSection,
+      @NonNull Executor mainThreadExecutor,
+      @NonNull Executor loadExecutor) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1, was " + pageSize);
+    }
+    this.adapter = adapter;
+    this.source = source;
+    this.pageSize = pageSize;
+    this.maxPagesPerSection = maxPagesPerSection;
+    this.mainThreadExecutor = mainThreadExecutor;
+    this.loadExecutor = loadExecutor;
+    checkPrefetchDistance(pageSize);
+    this.prefetchDistance = pageSize;
+  }
+
+  /**
+   * Sets how many items ahead of and behind a requested item should be loaded too. Defaults to the
+   * page size, which spans 3 pages. Throws if the pages it spans wouldn't all fit in the pages kept
+   * per section, since they'd be dropped as soon as they arrive.
+   */
+  public void setPrefetchDistance(int prefetchDistance) {
+    prefetchDistance = Math.max(0, prefetchDistance);
+    checkPrefetchDistance(prefetchDistance);
+    this.prefetchDistance = prefetchDistance;
+  }
+
+  private void checkPrefetchDistance(int prefetchDistance) {
+    // The items within the distance of one item span at most this many pages.
+    long pageCount = (2L * prefetchDistance + pageSize - 1) / pageSize + 1;
+    if (pageCount > maxPagesPerSection) {
+      throw new IllegalArgumentException(
+          "A prefetch distance of "
+              + prefetchDistance
+              + " spans "
+              + pageCount
+              + " pages, but only "
+              + maxPagesPerSection
+              + " are kept per section.");
+    }
+  }
+
+  /**
+   * Drops every loaded page and reads the section count and sizes from the source again. Call it
+   * when sections are added, removed or reordered. Pages still loading are discarded when they
+   * arrive.
+   */
+  public void refresh() {
+    generation++;
+    int sectionCount = source.getSectionCount();
+    sectionSizes = new int[sectionCount];
+    sectionPages = new ArrayList<>(sectionCount);
+    for (int s = 0; s < sectionCount; s++) {
+      sectionSizes[s] = Math.max(0, source.getEstimatedSectionSize(s));
+      sectionPages.add(new SectionPages<T>(maxPagesPerSection));
+    }
+    adapter.notifyDataSetChanged();
+  }
+
+  public int getSectionCount() {
+    return sectionSizes.length;
+  }
+
+  /** Returns a section's size, estimated until its last page has loaded. */
+  public int getItemCount(int section) {
+    checkSection(section);
+    return sectionSizes[section];
+  }
+
+  /**
+   * Fills in every section's size at once, for adapters that implement {@link ItemCountSource}.
+   */
+  public void getItemCounts(int[] counts, int sectionCount) {
+    System.arraycopy(sectionSizes, 0, counts, 0, sectionCount);
+  }
+
+  /**
+   * Returns an item, or null if its page hasn't loaded yet, in which case it should be bound as a
+   * placeholder. Loads the pages within the prefetch distance of the item that aren't already
+   * loaded or loading.
+   */
+  @Nullable
+  public T getItem(int section, int relativePosition) {
+    T item = peekItem(section, relativePosition);
+    loadAround(section, relativePosition);
+    return item;
+  }
+
+  /** Like {@link #getItem(int, int)}, but never starts a load. */
+  @Nullable
+  public T peekItem(int section, int relativePosition) {
+    checkSection(section);
+    List<T> page = sectionPages.get(section).get(relativePosition / pageSize);
+    int index = relativePosition % pageSize;
+    return page != null && index < page.size() ? page.get(index) : null;
+  }
+
+  public boolean isLoaded(int section, int relativePosition) {
+    checkSection(section);
+    List<T> page = sectionPages.get(section).get(relativePosition / pageSize);
+    return page != null && relativePosition % pageSize < page.size();
+  }
+
+  /**
+   * Corrects a section's size, notifying the items added to or removed from its end. Loaded pages
+   * past the new end are dropped.
+   */
+  public void setSectionSize(int section, int size) {
+    checkSection(section);
+    size = Math.max(0, size);
+    int oldSize = sectionSizes[section];
+    if (size == oldSize) {
+      return;
+    }
+    sectionSizes[section] = size;
+    if (size > oldSize) {
+      adapter.notifyItemInsertedInSection(section, oldSize, size - oldSize);
+    } else {
+      sectionPages.get(section).truncate((size + pageSize - 1) / pageSize);
+      adapter.notifyItemRemovedInSection(section, size, oldSize - size);
+    }
+  }
+
+  private void loadAround(int section, int relativePosition) {
+    int size = sectionSizes[section];
+    if (size == 0) {
+      return;
+    }
+    int firstPage = Math.max(0, relativePosition - prefetchDistance) / pageSize;
+    int lastPage = Math.min(size - 1, relativePosition + prefetchDistance) / pageSize;
+    SectionPages<T> pages = sectionPages.get(section);
+    for (int page = firstPage; page <= lastPage; page++) {
+      if (!pages.contains(page) && !pages.loading.get(page)) {
+        pages.loading.put(page, true);
+        loadPage(section, page);
+      }
+    }
+  }
+
+  private void loadPage(final int section, final int page) {
+    final int runGeneration = generation;
+    loadExecutor.execute(
+        new Runnable() {
+          @Override
+          public void run() {
+            List<T> loaded = null;
+            try {
+              loaded = source.loadPage(section, page * pageSize, pageSize);
+            } catch (RuntimeException e) {
+              Log.w(TAG, "Page " + page + " of section " + section + " failed to load.", e);
+            }
+            final List<T> items = loaded;
+            mainThreadExecutor.execute(
+                new Runnable() {
+                  @Override
+                  public void run() {
+                    if (generation != runGeneration) {
+                      return;
+                    }
+                    if (items != null) {
+                      onPageLoaded(section, page, items);
+                    } else {
+                      // Left as placeholders, and asked for again when they're next bound.
+                      sectionPages.get(section).loading.delete(page);
+                    }
+                  }
+                });
+          }
+        });
+  }
+
+  private void onPageLoaded(int section, int page, List<T> items) {
+    SectionPages<T> pages = sectionPages.get(section);
+    pages.loading.delete(page);
+    int start = page * pageSize;
+    int oldSize = sectionSizes[section];
+    if (start >= oldSize) {
+      // The section was trimmed before this page arrived.
+      return;
+    }
+    int loadedCount = Math.min(items.size(), pageSize);
+    if (loadedCount > 0) {
+      pages.put(page, items.size() > pageSize ? items.subList(0, pageSize) : items);
+    }
+
+    // Only what was already shown as placeholders is changed; any difference in size is
+    // inserted or removed at the end.
+    int changedCount = Math.min(loadedCount, oldSize - start);
+    if (changedCount > 0) {
+      adapter.notifyItemRangeChangedInSection(section, start, changedCount);
+    }
+    if (loadedCount < pageSize) {
+      setSectionSize(section, start + loadedCount);
+    } else if (start + pageSize > oldSize) {
+      setSectionSize(section, start + pageSize);
+    }
+  }
+
+  private void checkSection(int section) {
+    if (section < 0 || section >= sectionSizes.length) {
+      throw new IllegalArgumentException(
+          "Section " + section + " is out of range of existing sections.");
+    }
+  }
+
+  /**
+   * A section's loaded pages and the pages being loaded, looked up by index without boxing it. Once
+   * full, the least recently used page is dropped to make room.
+   */
+  private static class SectionPages<T> {
+
+    final SparseBooleanArray loading = new SparseBooleanArray();
+    private final SparseArray<List<T>> pages;
+    /** Indices of the loaded pages, least recently used first. */
+    private final int[] usage;
+    private int usageCount;
+
+    SectionPages(int maxPages) {
+      this.pages = new SparseArray<>(maxPages);
+      this.usage = new int[maxPages];
+    }
+
+    boolean contains(int page) {
+      return pages.indexOfKey(page) >= 0;
+    }
+
+    /** Returns a loaded page and marks it the most recently used, or null if it isn't loaded. */
+    @Nullable
+    List<T> get(int page) {
+      List<T> items = pages.get(page);
+      if (items != null) {
+        touch(page);
+      }
+      return items;
+    }
+
+    void put(int page, List<T> items) {
+      if (contains(page)) {
+        touch(page);
+      } else {
+        if (usageCount == usage.length) {
+          pages.remove(usage[0]);
+          System.arraycopy(usage, 1, usage, 0, --usageCount);
+        }
+        usage[usageCount++] = page;
+      }
+      pages.put(page, items);
+    }
+
+    private void touch(int page) {
+      int last = usageCount - 1;
+      for (int i = last; i >= 0; i--) {
+        if (usage[i] == page) {
+          System.arraycopy(usage, i + 1, usage, i, last - i);
+          usage[last] = page;
+          return;
+        }
+      }
+    }
+
+    /** Drops the pages from the given index on. */
+    void truncate(int pageCount) {
+      int kept = 0;
+      for (int i = 0; i < usageCount; i++) {
+        if (usage[i] < pageCount) {
+          usage[kept++] = usage[i];
+        } else {
+          pages.remove(usage[i]);
+        }
+      }
+      usageCount = kept;
+      for (int i = loading.size() - 1; i >= 0; i--) {
+        if (loading.keyAt(i) >= pageCount) {
+          loading.delete(loading.keyAt(i));
+        }
+      }
+    }
+  }
+
+  /** Provides the sections of a {@link SectionedPager} and loads their items. */
+  public interface Source<T> {
+
+    /** Called on the main thread from {@link SectionedPager#refresh()}. */
+    int getSectionCount();
+
+    /**
+     * Returns how many items a section is expected to have. Called on the main thread from {@link
+     * SectionedPager#refresh()}, so it shouldn't block; the pager corrects it once the section's
+     * last page has loaded.
+     */
+    int getEstimatedSectionSize(int section);
+
+    /**
+     * Loads up to {@code count} items of a section starting at {@code startPosition}. Called on the
+     * load executor. Returning fewer items means the section ends after them. Return null or throw
+     * if the page couldn't be loaded; it's loaded again the next time one of its items is asked
+     * for.
+     */
+    @WorkerThread
+    @Nullable
+    List<T> loadPage(int section, int startPosition, int count);
+  }
+}
@@ -1,5 +1,6 @@
 package com.afollestad.sectionedrecyclerview;
 
+import android.support.annotation.CallSuper;
 import android.support.annotation.IntRange;
 import android.support.annotation.Nullable;
 import android.support.annotation.RestrictTo;
@@ -7,25 +8,49 @@ import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.StaggeredGridLayoutManager;
 import android.util.Log;
+import android.util.SparseIntArray;
 import android.view.ViewGroup;
+import android.widget.SectionIndexer;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /** @author Aidan Follestad (afollestad) */
 @SuppressWarnings({"WeakerAccess", "unused"})
 public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolder>
-    extends RecyclerView.Adapter<VH> implements ItemProvider {
+    extends RecyclerView.Adapter<VH> implements ItemProvider, SectionIndexer {
 
   protected static final int VIEW_TYPE_FOOTER = -3;
   protected static final int VIEW_TYPE_HEADER = -2;
   protected static final int VIEW_TYPE_ITEM = -1;
+  /** Returned from {@link #getSectionItemViewType(int)} for sections without a uniform type. */
+  protected static final int VIEW_TYPE_MIXED = Integer.MIN_VALUE;
   private static final String TAG = "SectionedRVAdapter";
   private PositionManager positionManager;
+  private final LayoutDelegate positionDelegate = new LayoutDelegate();
+  private LayoutInvalidator layoutInvalidator;
+  private int attachedRecyclerViewCount;
+  private boolean dispatchingIndexedChange;
+  private StableIdValidator stableIdValidator;
+  private MetricsListener metricsListener;
   private GridLayoutManager layoutManager;
+  private SectionedSpanSizeLookup spanSizeLookup;
   private boolean showHeadersForEmptySections;
   private boolean showFooters;
+  /** Answers from {@link #getSectionItemViewType(int)}, filled in lazily between notify calls. */
+  private int[] sectionItemViewTypes;
+  /**
+   * The {@link #sectionItemViewTypeEpoch} each answer was given in. Notify calls bump the epoch,
+   * which invalidates every answer without touching the table.
+   */
+  private int[] sectionItemViewTypeStamps;
+
+  private int sectionItemViewTypeEpoch = 1;
 
   public SectionedRecyclerViewAdapter() {
     positionManager = new PositionManager();
+    sectionItemViewTypes = new int[0];
+    sectionItemViewTypeStamps = new int[0];
   }
 
   public void notifySectionChanged(@IntRange(from = 0, to = Integer.MAX_VALUE) int section) {
@@ -33,49 +58,417 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
       throw new IllegalArgumentException(
           "Section " + section + " is out of range of existing sections.");
     }
-    Integer sectionHeaderIndex = positionManager.sectionHeaderIndex(section);
+    ensureLayout();
+    int sectionHeaderIndex = positionManager.sectionHeaderIndex(section);
     if (sectionHeaderIndex == -1) {
       throw new IllegalStateException("No header position mapped for section " + section);
     }
+    // Only this section's cached count is refreshed; if it changed, the difference is notified
+    // at the end of the section.
+    int oldItemCount = positionManager.sectionItemCount(section);
+    int oldSize = positionManager.sectionSize(section);
     int sectionItemCount = getItemCount(section);
-    if (sectionItemCount == 0) {
+    positionManager.updateSectionItemCount(section, sectionItemCount);
+    int changedCount = Math.min(oldItemCount, sectionItemCount);
+    if (changedCount == 0) {
       Log.d(TAG, "There are no items in section " + section + " to notify.");
+    } else {
+      Log.d(
+          TAG, "Invalidating " + changedCount + " items starting at index " + sectionHeaderIndex);
+      notifyItemRangeChanged(sectionHeaderIndex, changedCount);
+    }
+    dispatchSectionResized(section, oldSize, changedCount);
+  }
+
+  /**
+   * Notifies the adapter that a section was inserted at the given index. Only the new section's
+   * header, items and footer are inserted; the rest of the layout is shifted in place.
+   */
+  public void notifySectionInserted(@IntRange(from = 0, to = Integer.MAX_VALUE) int section) {
+    checkSection(section, getSectionCount() - 1);
+    positionManager.insertSections(section, 1);
+    ensureLayout();
+    dispatchRangeInserted(
+        positionManager.sectionStart(section), positionManager.sectionSize(section));
+  }
+
+  /**
+   * Notifies the adapter that the section at the given index was removed. Only the old section's
+   * header, items and footer are removed; the rest of the layout is shifted in place.
+   */
+  public void notifySectionRemoved(@IntRange(from = 0, to = Integer.MAX_VALUE) int section) {
+    checkSection(section, getSectionCount());
+    if (!isIndexed()) {
+      // The old layout is already stale, so there's no way to tell what the section covered.
+      positionManager.removeSections(section, 1);
+      notifyDataSetChanged();
+      return;
+    }
+    int sectionStart = positionManager.sectionStart(section);
+    int sectionSize = positionManager.sectionSize(section);
+    positionManager.removeSections(section, 1);
+    dispatchRangeRemoved(sectionStart, sectionSize);
+  }
+
+  /**
+   * Notifies the adapter that a section was moved. Every position in the section is moved
+   * individually so that RecyclerView can animate them.
+   */
+  public void notifySectionMoved(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int fromSection,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int toSection) {
+    checkSection(fromSection, getSectionCount() - 1);
+    checkSection(toSection, getSectionCount() - 1);
+    if (!isIndexed()) {
+      positionManager.moveSection(fromSection, toSection);
+      notifyDataSetChanged();
+      return;
+    }
+    if (fromSection == toSection) {
+      return;
+    }
+    int fromStart = positionManager.sectionStart(fromSection);
+    int sectionSize = positionManager.sectionSize(fromSection);
+    positionManager.moveSection(fromSection, toSection);
+    int toStart = positionManager.sectionStart(toSection);
+    for (int i = 0; i < sectionSize; i++) {
+      if (fromSection < toSection) {
+        dispatchMoved(fromStart, toStart + sectionSize - 1);
+      } else {
+        dispatchMoved(fromStart + sectionSize - 1, toStart);
+      }
+    }
+  }
+
+  /** Notifies the adapter that items were inserted into a section, starting at a relative index. */
+  public void notifyItemInsertedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @IntRange(from = 1, to = Integer.MAX_VALUE) int count) {
+    checkSection(section, getSectionCount() - 1);
+    int sectionItemCount = cachedItemCountAfter(section, count);
+    int oldSize = positionManager.sizeOf(section, sectionItemCount - count);
+    positionManager.updateSectionItemCount(section, sectionItemCount);
+    dispatchSectionResized(section, oldSize, relativePosition);
+  }
+
+  /** Notifies the adapter that items were removed from a section, starting at a relative index. */
+  public void notifyItemRemovedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @IntRange(from = 1, to = Integer.MAX_VALUE) int count) {
+    checkSection(section, getSectionCount() - 1);
+    int sectionItemCount = cachedItemCountAfter(section, -count);
+    int oldSize = positionManager.sizeOf(section, sectionItemCount + count);
+    positionManager.updateSectionItemCount(section, sectionItemCount);
+    dispatchSectionResized(section, oldSize, relativePosition);
+  }
+
+  /** Notifies the adapter that an item moved from one relative index to another in a section. */
+  public void notifyItemMovedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int fromPosition,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int toPosition) {
+    int firstItemIndex = visibleItemsStart(section);
+    if (firstItemIndex != -1) {
+      dispatchMoved(firstItemIndex + fromPosition, firstItemIndex + toPosition);
+    }
+  }
+
+  /** Notifies the adapter that the item at a relative index in a section has changed. */
+  public void notifyItemChangedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition) {
+    notifyItemChangedInSection(section, relativePosition, null);
+  }
+
+  /**
+   * Notifies the adapter that the item at a relative index in a section has changed, passing a
+   * payload along to the bind.
+   */
+  public void notifyItemChangedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @Nullable Object payload) {
+    int firstItemIndex = visibleItemsStart(section);
+    if (firstItemIndex != -1) {
+      notifyItemChanged(firstItemIndex + relativePosition, payload);
+    }
+  }
+
+  /**
+   * Notifies the adapter that {@code count} items starting at a relative index in a section have
+   * changed. Nothing is notified while the section is collapsed.
+   */
+  public void notifyItemRangeChangedInSection(
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int section,
+      @IntRange(from = 0, to = Integer.MAX_VALUE) int relativePosition,
+      @IntRange(from = 1, to = Integer.MAX_VALUE) int count) {
+    int firstItemIndex = visibleItemsStart(section);
+    if (firstItemIndex != -1) {
+      notifyItemRangeChanged(firstItemIndex + relativePosition, count);
+    }
+  }
+
+  /**
+   * Returns a section's item count after {@code delta} items were added to it. The cached count
+   * is adjusted rather than asking {@link #getItemCount(int)}, unless the layout was stale and has
+   * just been rebuilt with the new count.
+   */
+  private int cachedItemCountAfter(int section, int delta) {
+    boolean indexed = isIndexed();
+    ensureLayout();
+    int cachedCount = positionManager.sectionItemCount(section);
+    return indexed ? cachedCount + delta : cachedCount;
+  }
+
+  private void checkSection(int section, int lastSection) {
+    if (section < 0 || section > lastSection) {
+      throw new IllegalArgumentException(
+          "Section " + section + " is out of range of existing sections.");
+    }
+  }
+
+  /** Returns the absolute position of a section's first item, or -1 if its items aren't shown. */
+  private int visibleItemsStart(int section) {
+    checkSection(section, getSectionCount() - 1);
+    ensureLayout();
+    int sectionHeaderIndex = positionManager.sectionHeaderIndex(section);
+    if (sectionHeaderIndex == -1 || !positionManager.isSectionExpanded(section)) {
+      return -1;
+    }
+    return sectionHeaderIndex + 1;
+  }
+
+  /** Returns the position index, rebuilt first if it's stale. */
+  PositionManager getPositionManager() {
+    ensureLayout();
+    return positionManager;
+  }
+
+  /**
+   * Forgets the collapsed state of every section, for a set of sections unrelated to the current
+   * one. The index is only marked stale, so it's rebuilt once, by the next layout.
+   */
+  void resetSections() {
+    positionManager.remapSections(new int[0]);
+  }
+
+  /** Returns what view holders resolve their positions through, see {@link LayoutDelegate}. */
+  SectionedViewHolder.PositionDelegate getPositionDelegate() {
+    return positionDelegate;
+  }
+
+  /** Whether the position index still describes what RecyclerView was last told about. */
+  private boolean isIndexed() {
+    return layoutInvalidator != null && !positionManager.isDirty();
+  }
+
+  /**
+   * Notifies the change in size of a section whose index has already been updated. Sections that
+   * appear or disappear are inserted or removed whole, otherwise only the difference is.
+   */
+  private void dispatchSectionResized(int section, int oldSize, int relativePosition) {
+    int sectionStart = positionManager.sectionStart(section);
+    int newSize = positionManager.sectionSize(section);
+    if (oldSize == 0) {
+      dispatchRangeInserted(sectionStart, newSize);
+    } else if (newSize == 0) {
+      dispatchRangeRemoved(sectionStart, oldSize);
+    } else if (newSize > oldSize) {
+      dispatchRangeInserted(sectionStart + 1 + relativePosition, newSize - oldSize);
+    } else if (newSize < oldSize) {
+      dispatchRangeRemoved(sectionStart + 1 + relativePosition, oldSize - newSize);
+    }
+  }
+
+  /**
+   * Captures the settings, collapsed state and layout a {@link SectionLayoutSnapshot} is built
+   * against. Call it on the main thread, then build the snapshot on any thread.
+   */
+  public final SectionLayoutSnapshot.Builder newLayoutSnapshotBuilder() {
+    return positionManager.newSnapshotBuilder(this);
+  }
+
+  /**
+   * Publishes a layout built off the main thread, replacing the position index in O(1) and
+   * notifying the positions that changed since its builder was created. Call it on the main thread
+   * right after the data it was built from becomes visible to {@link #getItemCount(int)}.
+   *
+   * <p>Sections are assumed to have kept their identity, with items added or dropped at their end;
+   * notify content changes yourself, or use {@link SectionedListDiffer}. If the layout or collapsed
+   * state changed while the snapshot was being built, its item counts are still used but the whole
+   * data set is notified as changed.
+   */
+  public final void applyLayoutSnapshot(SectionLayoutSnapshot snapshot) {
+    boolean current = positionManager.applySnapshot(snapshot, this);
+    beginIndexedChange();
+    try {
+      if (!current || snapshot.updates == null) {
+        notifyDataSetChanged();
+        return;
+      }
+      int[] updates = snapshot.updates;
+      for (int i = 0; i < snapshot.updateCount; i += 3) {
+        if (updates[i] == SectionLayoutSnapshot.UPDATE_INSERT) {
+          notifyItemRangeInserted(updates[i + 1], updates[i + 2]);
+        } else {
+          notifyItemRangeRemoved(updates[i + 1], updates[i + 2]);
+        }
+      }
+    } finally {
+      endIndexedChange();
+    }
+  }
+
+  /**
+   * Until {@link #endIndexedChange()}, notify calls are taken to describe changes the position
+   * index already reflects, and don't mark it as stale.
+   */
+  void beginIndexedChange() {
+    dispatchingIndexedChange = true;
+  }
+
+  void endIndexedChange() {
+    dispatchingIndexedChange = false;
+  }
+
+  // The dispatch methods below notify changes the position index already reflects, so they don't
+  // mark it as stale.
+
+  private void dispatchRangeInserted(int positionStart, int itemCount) {
+    if (itemCount <= 0) {
+      return;
+    }
+    dispatchingIndexedChange = true;
+    try {
+      notifyItemRangeInserted(positionStart, itemCount);
+    } finally {
+      dispatchingIndexedChange = false;
+    }
+  }
+
+  private void dispatchRangeRemoved(int positionStart, int itemCount) {
+    if (itemCount <= 0) {
       return;
     }
-    Log.d(
-        TAG, "Invalidating " + sectionItemCount + " items starting at index " + sectionHeaderIndex);
-    notifyItemRangeChanged(sectionHeaderIndex, sectionItemCount);
+    dispatchingIndexedChange = true;
+    try {
+      notifyItemRangeRemoved(positionStart, itemCount);
+    } finally {
+      dispatchingIndexedChange = false;
+    }
+  }
+
+  private void dispatchMoved(int fromPosition, int toPosition) {
+    dispatchingIndexedChange = true;
+    try {
+      notifyItemMoved(fromPosition, toPosition);
+    } finally {
+      dispatchingIndexedChange = false;
+    }
   }
 
   public void expandSection(int section) {
-    positionManager.expandSection(section);
-    notifyDataSetChanged();
+    ensureLayout();
+    if (!positionManager.isSectionExpanded(section)) {
+      expandSectionInternal(section);
+    }
   }
 
   public void collapseSection(int section) {
-    positionManager.collapseSection(section);
-    notifyDataSetChanged();
+    ensureLayout();
+    if (positionManager.isSectionExpanded(section)) {
+      collapseSectionInternal(section);
+    }
   }
 
+  /**
+   * Expands every collapsed section with a single rebuild of the index, then notifies each one's
+   * header and the items it shows again.
+   */
   public void expandAllSections() {
-    if (!positionManager.hasInvalidated()) {
-      positionManager.invalidate(this);
+    ensureLayout();
+    int sectionCount = positionManager.sectionCount();
+    int[] expanded = new int[sectionCount];
+    int expandedCount = 0;
+    for (int section = 0; section < sectionCount; section++) {
+      if (!positionManager.isSectionExpanded(section)) {
+        expanded[expandedCount++] = section;
+      }
+    }
+    if (expandedCount == 0) {
+      return;
     }
     positionManager.expandAllSections();
-    notifyDataSetChanged();
+    // Notified front to back, so the sections before each one are already in their new positions.
+    for (int i = 0; i < expandedCount; i++) {
+      int headerIndex = positionManager.sectionHeaderIndex(expanded[i]);
+      if (headerIndex != -1) {
+        notifyItemChanged(headerIndex, SectionPayload.EXPANDED_STATE_CHANGED);
+        dispatchRangeInserted(headerIndex + 1, positionManager.sectionSize(expanded[i]) - 1);
+      }
+    }
   }
 
+  /**
+   * Collapses every expanded section with a single rebuild of the index, then notifies each one's
+   * header and the items it hides.
+   */
   public void collapseAllSections() {
-    if (!positionManager.hasInvalidated()) {
-      positionManager.invalidate(this);
+    ensureLayout();
+    int sectionCount = positionManager.sectionCount();
+    int[] collapsed = new int[sectionCount];
+    int[] removedCounts = new int[sectionCount];
+    int collapsedCount = 0;
+    for (int section = 0; section < sectionCount; section++) {
+      if (positionManager.isSectionExpanded(section)) {
+        collapsed[collapsedCount] = section;
+        removedCounts[collapsedCount++] = positionManager.sectionSize(section) - 1;
+      }
+    }
+    if (collapsedCount == 0) {
+      return;
     }
     positionManager.collapseAllSections();
-    notifyDataSetChanged();
+    // Notified front to back, so the sections before each one are already in their new positions.
+    for (int i = 0; i < collapsedCount; i++) {
+      int headerIndex = positionManager.sectionHeaderIndex(collapsed[i]);
+      if (headerIndex != -1) {
+        notifyItemChanged(headerIndex, SectionPayload.EXPANDED_STATE_CHANGED);
+        dispatchRangeRemoved(headerIndex + 1, removedCounts[i]);
+      }
+    }
   }
 
   public void toggleSectionExpanded(int section) {
-    positionManager.toggleSectionExpanded(section);
-    notifyDataSetChanged();
+    ensureLayout();
+    if (positionManager.isSectionExpanded(section)) {
+      collapseSectionInternal(section);
+    } else {
+      expandSectionInternal(section);
+    }
+  }
+
+  private void expandSectionInternal(int section) {
+    int headerIndex = positionManager.sectionHeaderIndex(section);
+    positionManager.expandSection(section);
+    if (headerIndex == -1) {
+      return;
+    }
+    notifyItemChanged(headerIndex, SectionPayload.EXPANDED_STATE_CHANGED);
+    dispatchRangeInserted(headerIndex + 1, positionManager.sectionSize(section) - 1);
+  }
+
+  private void collapseSectionInternal(int section) {
+    int headerIndex = positionManager.sectionHeaderIndex(section);
+    int removedCount = positionManager.sectionSize(section) - 1;
+    positionManager.collapseSection(section);
+    if (headerIndex == -1) {
+      return;
+    }
+    notifyItemChanged(headerIndex, SectionPayload.EXPANDED_STATE_CHANGED);
+    dispatchRangeRemoved(headerIndex + 1, removedCount);
   }
 
   public abstract int getSectionCount();
@@ -89,23 +482,58 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
   public abstract void onBindViewHolder(
       VH holder, int section, int relativePosition, int absolutePosition);
 
+  /**
+   * Binds a header with the payloads it was notified with, such as {@link
+   * SectionPayload#EXPANDED_STATE_CHANGED}. An empty list means a full bind. By default, payloads
+   * are ignored and {@link #onBindHeaderViewHolder(SectionedViewHolder, int, boolean)} is called.
+   */
+  public void onBindHeaderViewHolder(
+      VH holder, int section, boolean expanded, List<Object> payloads) {
+    onBindHeaderViewHolder(holder, section, expanded);
+  }
+
+  /**
+   * Binds a footer with the payloads it was notified with. An empty list means a full bind. By
+   * default, payloads are ignored and {@link #onBindFooterViewHolder(SectionedViewHolder, int)} is
+   * called.
+   */
+  public void onBindFooterViewHolder(VH holder, int section, List<Object> payloads) {
+    onBindFooterViewHolder(holder, section);
+  }
+
+  /**
+   * Binds an item with the payloads it was notified with, such as the ones passed to {@link
+   * #notifyItemChangedInSection(int, int, Object)}. An empty list means a full bind. By default,
+   * payloads are ignored and {@link #onBindViewHolder(SectionedViewHolder, int, int, int)} is
+   * called.
+   */
+  public void onBindViewHolder(
+      VH holder, int section, int relativePosition, int absolutePosition, List<Object> payloads) {
+    onBindViewHolder(holder, section, relativePosition, absolutePosition);
+  }
+
   public final boolean isHeader(int position) {
+    ensureLayout();
     return positionManager.isHeader(position);
   }
 
   public final boolean isFooter(int position) {
+    ensureLayout();
     return positionManager.isFooter(position);
   }
 
   public final boolean isSectionExpanded(int section) {
+    ensureLayout();
     return positionManager.isSectionExpanded(section);
   }
 
   public final int getSectionHeaderIndex(int section) {
+    ensureLayout();
     return positionManager.sectionHeaderIndex(section);
   }
 
   public final int getSectionFooterIndex(int section) {
+    ensureLayout();
     return positionManager.sectionFooterIndex(section);
   }
 
@@ -130,42 +558,107 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
   public final void setLayoutManager(@Nullable GridLayoutManager lm) {
     layoutManager = lm;
     if (lm == null) {
+      spanSizeLookup = null;
       return;
     }
-    lm.setSpanSizeLookup(
-        new GridLayoutManager.SpanSizeLookup() {
-          @Override
-          public int getSpanSize(int position) {
-            if (isHeader(position) || isFooter(position)) {
-              return layoutManager.getSpanCount();
-            }
-            ItemCoord sectionAndPos = getRelativePosition(position);
-            int absPos = position - (sectionAndPos.section() + 1);
-            return getRowSpan(
-                layoutManager.getSpanCount(),
-                sectionAndPos.section(),
-                sectionAndPos.relativePos(),
-                absPos);
-          }
-        });
+    spanSizeLookup = new SectionedSpanSizeLookup(this, lm);
+    lm.setSpanSizeLookup(spanSizeLookup);
   }
 
+  /**
+   * Returns the span an item takes up. Only asked for items in sections whose {@link
+   * #getSectionRowSpan(int, int)} is -1.
+   */
   @SuppressWarnings("UnusedParameters")
   protected int getRowSpan(
       int fullSpanSize, int section, int relativePosition, int absolutePosition) {
     return 1;
   }
 
+  /**
+   * Returns the span every item in a section takes up, 1 by default. Return -1 if it varies between
+   * items, so that {@link #getRowSpan(int, int, int, int)} is asked for each one. Sections with a
+   * uniform span have their grid rows computed arithmetically instead of by walking their items.
+   */
+  @SuppressWarnings("UnusedParameters")
+  protected int getSectionRowSpan(int fullSpanSize, int section) {
+    return 1;
+  }
+
+  /**
+   * Returns the label fast scrollers show for a section, such as its first letter or date. Null by
+   * default.
+   */
+  @Nullable
+  public String getSectionLabel(int section) {
+    return null;
+  }
+
+  /** Returns the label of every section, from {@link #getSectionLabel(int)}. O(S). */
+  @Override
+  public Object[] getSections() {
+    String[] labels = new String[getSectionCount()];
+    for (int i = 0; i < labels.length; i++) {
+      labels[i] = getSectionLabel(i);
+    }
+    return labels;
+  }
+
+  /**
+   * Returns the position of a section's header, clipped to the adapter's bounds. A hidden section
+   * maps to the section after it. Answered from the position index, without calling {@link
+   * #getItemCount(int)}.
+   */
+  @Override
+  public int getPositionForSection(int section) {
+    int itemCount = getItemCount();
+    if (itemCount == 0) {
+      return 0;
+    }
+    section = Math.max(0, Math.min(section, positionManager.sectionCount() - 1));
+    return Math.min(positionManager.sectionStart(section), itemCount - 1);
+  }
+
+  /**
+   * Returns the section a position belongs to, clipping the position to the adapter's bounds.
+   * O(log S), without calling {@link #getItemCount(int)}.
+   */
+  @Override
+  public int getSectionForPosition(int position) {
+    int itemCount = getItemCount();
+    if (itemCount == 0) {
+      return 0;
+    }
+    position = Math.max(0, Math.min(position, itemCount - 1));
+    return ItemCoord.section(positionManager.packedRelativePosition(position));
+  }
+
   /** Converts an absolute position to a relative position and section. */
   public ItemCoord getRelativePosition(int absolutePosition) {
+    ensureLayout();
     return positionManager.relativePosition(absolutePosition);
   }
 
+  /**
+   * Converts an absolute position to a relative position and section, packed into a long to avoid
+   * allocating an {@link ItemCoord}. Read it with {@link ItemCoord#section(long)} and {@link
+   * ItemCoord#relativePos(long)}; the relative position is -1 for headers.
+   */
+  public final long getPackedRelativePosition(int absolutePosition) {
+    ensureLayout();
+    return positionManager.packedRelativePosition(absolutePosition);
+  }
+
+  private boolean isFooter(int section, int position) {
+    return positionManager.sectionFooterIndex(section) == position;
+  }
+
   /**
    * Converts a relative position (index inside of a section) to an absolute position (index out of
    * all items and headers).
    */
   public int getAbsolutePosition(int sectionIndex, int relativeIndex) {
+    ensureLayout();
     return positionManager.absolutePosition(sectionIndex, relativeIndex);
   }
 
@@ -174,12 +667,63 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
    * all items and headers).
    */
   public int getAbsolutePosition(ItemCoord relativePosition) {
+    ensureLayout();
     return positionManager.absolutePosition(relativePosition);
   }
 
   @Override
   public final int getItemCount() {
-    return positionManager.invalidate(this);
+    return ensureLayout();
+  }
+
+  /**
+   * Starts tracking notify calls, so the layout is only rebuilt when one may have changed it. Until
+   * the adapter is attached, every call rebuilds it. Like RecyclerView itself, this registers an
+   * observer, so call {@link #setHasStableIds(boolean)} before setting the adapter.
+   */
+  @CallSuper
+  @Override
+  public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+    super.onAttachedToRecyclerView(recyclerView);
+    attachedRecyclerViewCount++;
+    observeChanges();
+  }
+
+  /** Stops tracking notify calls once the adapter is detached from every RecyclerView. */
+  @CallSuper
+  @Override
+  public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+    super.onDetachedFromRecyclerView(recyclerView);
+    attachedRecyclerViewCount--;
+    if (attachedRecyclerViewCount == 0 && layoutInvalidator != null) {
+      unregisterAdapterDataObserver(layoutInvalidator);
+      layoutInvalidator = null;
+    }
+  }
+
+  /**
+   * Registers the observer that marks the layout stale on notify calls. Tests call this to attach
+   * an adapter without a RecyclerView.
+   */
+  void observeChanges() {
+    if (layoutInvalidator != null) {
+      return;
+    }
+    layoutInvalidator = new LayoutInvalidator();
+    registerAdapterDataObserver(layoutInvalidator);
+    positionManager.markDirty();
+  }
+
+  /**
+   * Rebuilds the cached layout if a notify call, an expand/collapse, or a header/footer setting
+   * change has made it stale, and returns the item count. Until the adapter is attached, notify
+   * calls can't be tracked so the layout is always rebuilt.
+   */
+  private int ensureLayout() {
+    if (layoutInvalidator == null) {
+      positionManager.markDirty();
+    }
+    return positionManager.itemCount(this);
   }
 
   @Override
@@ -200,28 +744,119 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
   @Deprecated
   @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
   public long getItemId(int position) {
-    if (isHeader(position)) {
-      int pos = positionManager.sectionId(position);
-      return getHeaderId(pos);
-    } else if (isFooter(position)) {
-      int pos = positionManager.footerId(position);
-      return getFooterId(pos);
+    long sectionAndPos = getPackedRelativePosition(position);
+    int section = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    long id;
+    if (relativePos == -1) {
+      id = getHeaderId(section);
+    } else if (isFooter(section, position)) {
+      id = getFooterId(section);
     } else {
-      ItemCoord sectionAndPos = getRelativePosition(position);
-      return getItemId(sectionAndPos.section(), sectionAndPos.relativePos());
+      id = getItemId(section, relativePos);
+    }
+    if (stableIdValidator != null) {
+      stableIdValidator.check(id, position, positionManager.generation());
     }
+    return id;
   }
 
+  /** Returns {@link StableIds#header(long)} for the section's key by default. */
   public long getHeaderId(int section) {
-    return super.getItemId(section);
+    return StableIds.header(getSectionKey(section));
   }
 
+  /** Returns {@link StableIds#footer(long)} for the section's key by default. */
   public long getFooterId(int section) {
-    return super.getItemId(section) + getItemCount(section);
+    return StableIds.footer(getSectionKey(section));
   }
 
+  /** Returns {@link StableIds#item(long, long)} for the section's and item's keys by default. */
   public long getItemId(int section, int position) {
-    return super.getItemId(position);
+    return StableIds.item(getSectionKey(section), getItemKey(section, position));
+  }
+
+  /**
+   * Returns a key that identifies a section for as long as it exists, used to build stable IDs.
+   * Must be between 0 and {@link StableIds#MAX_SECTION_KEY}. Defaults to the section's index,
+   * which is only stable if sections are never inserted, removed or moved.
+   */
+  public long getSectionKey(int section) {
+    return section;
+  }
+
+  /**
+   * Returns a key that identifies an item within its section, used to build stable IDs. Must be
+   * between 0 and {@link StableIds#MAX_ITEM_KEY}. Defaults to the item's relative position.
+   */
+  public long getItemKey(int section, int relativePosition) {
+    return relativePosition;
+  }
+
+  /**
+   * Checks every ID returned from {@link #getItemId(int)} against the others in the current layout,
+   * throwing if two positions share one. Meant for debug builds, e.g. {@code
+   * setStableIdCollisionCheckEnabled(BuildConfig.DEBUG)}.
+   */
+  public final void setStableIdCollisionCheckEnabled(boolean enabled) {
+    stableIdValidator = enabled ? new StableIdValidator() : null;
+  }
+
+  /**
+   * Reports index rebuilds, binds and notify calls to the given listener, e.g. a {@link
+   * MetricsAggregator}. Nothing is timed while no listener is set.
+   */
+  public final void setMetricsListener(@Nullable MetricsListener listener) {
+    metricsListener = listener;
+    positionManager.setMetricsListener(listener);
+  }
+
+  /**
+   * Recommends how many holders of each view type a {@link RecyclerView.RecycledViewPool} should
+   * keep while the given positions are on screen: one for each of them, plus a row of items and a
+   * header or footer for whatever scrolls in next. Written into {@code out}, keyed by view type.
+   * Runs in O(V log S) for V visible positions. See {@link SectionedViewPool}.
+   */
+  @SuppressWarnings("deprecation")
+  public final void getRecommendedMaxRecycledViews(
+      int firstVisiblePosition, int lastVisiblePosition, int spanCount, SparseIntArray out) {
+    out.clear();
+    int itemCount = getItemCount();
+    firstVisiblePosition = Math.max(0, firstVisiblePosition);
+    lastVisiblePosition = Math.min(itemCount - 1, lastVisiblePosition);
+    if (firstVisiblePosition > lastVisiblePosition) {
+      return;
+    }
+    for (int position = firstVisiblePosition; position <= lastVisiblePosition; position++) {
+      int viewType = getItemViewType(position);
+      int count = out.get(viewType);
+      if (count == 0) {
+        // The first of each type makes room for those scrolling in after it.
+        boolean fullSpan = positionManager.isHeader(position) || positionManager.isFooter(position);
+        count = fullSpan ? 1 : Math.max(1, spanCount);
+      }
+      out.put(viewType, count + 1);
+    }
+    // The sections either side of the screen bring their own header and footer types.
+    int firstSection = getSectionForPosition(firstVisiblePosition);
+    int lastSection = getSectionForPosition(lastVisiblePosition);
+    recommendBoundaryViewTypes(firstSection - 1, out);
+    recommendBoundaryViewTypes(lastSection + 1, out);
+  }
+
+  @SuppressWarnings("deprecation")
+  private void recommendBoundaryViewTypes(int section, SparseIntArray out) {
+    if (section < 0 || section >= positionManager.sectionCount()) {
+      return;
+    }
+    int headerIndex = positionManager.sectionHeaderIndex(section);
+    if (headerIndex != -1 && out.indexOfKey(getItemViewType(headerIndex)) < 0) {
+      out.put(getItemViewType(headerIndex), 1);
+    }
+    int footerIndex = positionManager.sectionFooterIndex(section);
+    if (footerIndex != -1 && out.indexOfKey(getItemViewType(footerIndex)) < 0) {
+      out.put(getItemViewType(footerIndex), 1);
+    }
   }
 
   /**
@@ -232,18 +867,44 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
   @Deprecated
   @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
   public final int getItemViewType(int position) {
-    if (isHeader(position)) {
-      return getHeaderViewType(positionManager.sectionId(position));
-    } else if (isFooter(position)) {
-      return getFooterViewType(positionManager.footerId(position));
-    } else {
-      ItemCoord sectionAndPos = getRelativePosition(position);
-      return getItemViewType(
-          sectionAndPos.section(),
-          // offset section view positions
-          sectionAndPos.relativePos(),
-          position - (sectionAndPos.section() + 1));
+    long sectionAndPos = getPackedRelativePosition(position);
+    int section = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    if (relativePos == -1) {
+      return getHeaderViewType(section);
+    } else if (isFooter(section, position)) {
+      return getFooterViewType(section);
     }
+    int sectionItemViewType = sectionItemViewType(section);
+    if (sectionItemViewType != VIEW_TYPE_MIXED) {
+      return sectionItemViewType;
+    }
+    return getItemViewType(
+        section,
+        // offset section view positions
+        relativePos,
+        position - (section + 1));
+  }
+
+  /**
+   * Looks up a section's uniform item view type in the table, asking {@link
+   * #getSectionItemViewType(int)} the first time a section is seen after a notify call. Until the
+   * adapter is observed, notify calls can't be tracked so nothing is cached.
+   */
+  private int sectionItemViewType(int section) {
+    if (layoutInvalidator == null) {
+      return getSectionItemViewType(section);
+    }
+    if (section >= sectionItemViewTypes.length) {
+      int capacity = Math.max(section + 1, positionManager.sectionCount());
+      sectionItemViewTypes = Arrays.copyOf(sectionItemViewTypes, capacity);
+      sectionItemViewTypeStamps = Arrays.copyOf(sectionItemViewTypeStamps, capacity);
+    }
+    if (sectionItemViewTypeStamps[section] != sectionItemViewTypeEpoch) {
+      sectionItemViewTypes[section] = getSectionItemViewType(section);
+      sectionItemViewTypeStamps[section] = sectionItemViewTypeEpoch;
+    }
+    return sectionItemViewTypes[section];
   }
 
   @IntRange(from = 0, to = Integer.MAX_VALUE)
@@ -258,6 +919,16 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
     return VIEW_TYPE_FOOTER;
   }
 
+  /**
+   * Override to give every item in a section the same view type, which is then looked up per
+   * section rather than per position. The answer is kept until the next notify call. Returns
+   * {@link #VIEW_TYPE_MIXED} by default, in which case {@link #getItemViewType(int, int, int)} is
+   * asked for each item.
+   */
+  public int getSectionItemViewType(int section) {
+    return VIEW_TYPE_MIXED;
+  }
+
   @IntRange(from = 0, to = Integer.MAX_VALUE)
   public int getItemViewType(int section, int relativePosition, int absolutePosition) {
     //noinspection ResourceType
@@ -272,55 +943,201 @@ public abstract class SectionedRecyclerViewAdapter<VH extends SectionedViewHolde
   @Deprecated
   @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
   public final void onBindViewHolder(VH holder, int position) {
-    holder.setPositionDelegate(positionManager);
+    bindViewHolder(holder, position, Collections.emptyList());
+  }
 
-    StaggeredGridLayoutManager.LayoutParams layoutParams = null;
-    if (holder.itemView.getLayoutParams() instanceof GridLayoutManager.LayoutParams)
-      layoutParams =
-          new StaggeredGridLayoutManager.LayoutParams(
-              ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
-    else if (holder.itemView.getLayoutParams() instanceof StaggeredGridLayoutManager.LayoutParams) {
-      layoutParams = (StaggeredGridLayoutManager.LayoutParams) holder.itemView.getLayoutParams();
+  /**
+   * @hide
+   * @deprecated
+   */
+  @Override
+  @Deprecated
+  @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+  public final void onBindViewHolder(VH holder, int position, List<Object> payloads) {
+    if (metricsListener == null) {
+      bindViewHolder(holder, position, payloads);
+      return;
     }
+    long start = System.nanoTime();
+    bindViewHolder(holder, position, payloads);
+    metricsListener.onBind(
+        holder.getItemViewType(), !payloads.isEmpty(), System.nanoTime() - start);
+  }
 
-    if (isHeader(position)) {
-      if (layoutParams != null) {
-        layoutParams.setFullSpan(true);
-      }
-      int sectionIndex = positionManager.sectionId(position);
-      onBindHeaderViewHolder(holder, sectionIndex, isSectionExpanded(sectionIndex));
-    } else if (isFooter(position)) {
-      if (layoutParams != null) {
-        layoutParams.setFullSpan(true);
-      }
-      int sectionIndex = positionManager.footerId(position);
-      onBindFooterViewHolder(holder, sectionIndex);
+  private void bindViewHolder(VH holder, int position, List<Object> payloads) {
+    long sectionAndPos = getPackedRelativePosition(position);
+    int sectionIndex = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    boolean footer = relativePos != -1 && isFooter(sectionIndex, position);
+    holder.stamp(positionDelegate, position, sectionAndPos, footer);
+
+    if (relativePos == -1) {
+      setFullSpan(holder, true);
+      onBindHeaderViewHolder(holder, sectionIndex, isSectionExpanded(sectionIndex), payloads);
+    } else if (footer) {
+      setFullSpan(holder, true);
+      onBindFooterViewHolder(holder, sectionIndex, payloads);
     } else {
-      if (layoutParams != null) {
-        layoutParams.setFullSpan(false);
-      }
-      ItemCoord sectionAndPos = getRelativePosition(position);
-      int absolutePosition = getAbsolutePosition(sectionAndPos);
+      setFullSpan(holder, false);
       onBindViewHolder(
           holder,
-          sectionAndPos.section(),
+          sectionIndex,
           // offset section view positions
-          sectionAndPos.relativePos(),
-          absolutePosition);
+          relativePos,
+          position,
+          payloads);
     }
+  }
 
-    if (layoutParams != null) {
-      holder.itemView.setLayoutParams(layoutParams);
+  /**
+   * Makes headers and footers span every column of a StaggeredGridLayoutManager. The holder's
+   * params are only touched when the flag flips, so rebinding a recycled view doesn't request a
+   * layout. GridLayoutManager spans come from {@link #setLayoutManager(GridLayoutManager)}'s span
+   * size lookup instead, so its params are left alone.
+   */
+  private void setFullSpan(VH holder, boolean fullSpan) {
+    ViewGroup.LayoutParams layoutParams = holder.itemView.getLayoutParams();
+    if (!(layoutParams instanceof StaggeredGridLayoutManager.LayoutParams)) {
+      return;
+    }
+    StaggeredGridLayoutManager.LayoutParams staggeredParams =
+        (StaggeredGridLayoutManager.LayoutParams) layoutParams;
+    if (staggeredParams.isFullSpan() != fullSpan) {
+      staggeredParams.setFullSpan(fullSpan);
+      holder.itemView.setLayoutParams(staggeredParams);
     }
   }
 
   /**
-   * @hide
-   * @deprecated
+   * Resolves view holder positions against the position index, rebuilding it first if a notify
+   * call has left it stale, the same as the adapter's own lookups do.
    */
-  @Deprecated
-  @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
-  public final void onBindViewHolder(VH holder, int position, List<Object> payloads) {
-    super.onBindViewHolder(holder, position, payloads);
+  private class LayoutDelegate implements SectionedViewHolder.PositionDelegate {
+
+    @Override
+    public int generation() {
+      ensureLayout();
+      return positionManager.generation();
+    }
+
+    @Override
+    public ItemCoord relativePosition(int absolutePosition) {
+      ensureLayout();
+      return positionManager.relativePosition(absolutePosition);
+    }
+
+    @Override
+    public long packedRelativePosition(int absolutePosition) {
+      ensureLayout();
+      return positionManager.packedRelativePosition(absolutePosition);
+    }
+
+    @Override
+    public boolean isHeader(int absolutePosition) {
+      ensureLayout();
+      return positionManager.isHeader(absolutePosition);
+    }
+
+    @Override
+    public boolean isFooter(int absolutePosition) {
+      ensureLayout();
+      return positionManager.isFooter(absolutePosition);
+    }
+
+    @Override
+    public boolean isFooterCoord(long packedCoord) {
+      ensureLayout();
+      return positionManager.isFooterCoord(packedCoord);
+    }
+  }
+
+  /**
+   * Marks the cached layout stale whenever a notify call may have changed the item count, unless
+   * the adapter is dispatching a change it has already applied to the index itself. Any notify
+   * call clears the section item view type table, and has the grid span lookup walk the sections
+   * it touched again.
+   */
+  private class LayoutInvalidator extends RecyclerView.AdapterDataObserver {
+
+    @Override
+    public void onChanged() {
+      sectionItemViewTypeEpoch++;
+      if (!dispatchingIndexedChange) {
+        positionManager.markDirty();
+      }
+      if (metricsListener != null) {
+        metricsListener.onNotify(MetricsListener.NotifyType.DATA_SET_CHANGED, 0, -1);
+      }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+      sectionItemViewTypeEpoch++;
+      if (stableIdValidator != null) {
+        // Changed items may have new IDs without the layout changing.
+        stableIdValidator.reset();
+      }
+      if (spanSizeLookup != null) {
+        spanSizeLookup.onItemsChanged(
+            positionManager, positionStart, positionStart + itemCount - 1);
+      }
+      if (metricsListener != null) {
+        metricsListener.onNotify(
+            MetricsListener.NotifyType.ITEMS_CHANGED, positionStart, itemCount);
+      }
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      sectionItemViewTypeEpoch++;
+      if (!dispatchingIndexedChange) {
+        positionManager.markDirty();
+      }
+      if (spanSizeLookup != null) {
+        spanSizeLookup.onItemsChanged(
+            positionManager, positionStart, positionStart + itemCount - 1);
+      }
+      if (metricsListener != null) {
+        metricsListener.onNotify(
+            MetricsListener.NotifyType.ITEMS_INSERTED, positionStart, itemCount);
+      }
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      sectionItemViewTypeEpoch++;
+      if (!dispatchingIndexedChange) {
+        positionManager.markDirty();
+      }
+      if (spanSizeLookup != null) {
+        // The items after the removed ones now start at positionStart.
+        spanSizeLookup.onItemsChanged(positionManager, positionStart - 1, positionStart);
+      }
+      if (metricsListener != null) {
+        metricsListener.onNotify(
+            MetricsListener.NotifyType.ITEMS_REMOVED, positionStart, itemCount);
+      }
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      sectionItemViewTypeEpoch++;
+      if (!dispatchingIndexedChange) {
+        positionManager.markDirty();
+      }
+      if (stableIdValidator != null) {
+        // Moved items keep their IDs at new positions without the layout changing.
+        stableIdValidator.reset();
+      }
+      if (spanSizeLookup != null) {
+        spanSizeLookup.onItemsChanged(
+            positionManager,
+            Math.min(fromPosition, toPosition),
+            Math.max(fromPosition, toPosition));
+      }
+      if (metricsListener != null) {
+        metricsListener.onNotify(MetricsListener.NotifyType.ITEMS_MOVED, fromPosition, itemCount);
+      }
+    }
   }
 }
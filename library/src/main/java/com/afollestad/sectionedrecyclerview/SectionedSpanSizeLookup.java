@@ -0,0 +1,290 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+import android.support.v7.widget.GridLayoutManager;
+import java.util.Arrays;
+
+/**
+ * A span lookup that knows headers and footers always take up a full row, so every section's rows
+ * can be laid out on their own. The default lookup walks every position before the one asked
+ * about; this one finds the section in O(log S) and then computes the span and row inside of it,
+ * which is O(1) for sections with a uniform {@link
+ * SectionedRecyclerViewAdapter#getSectionRowSpan(int, int)}. Other sections are only walked once
+ * a position in them, or a row after them, is asked about. They're walked again when they're
+ * resized or their items are notified, or when sections are added, removed or reordered.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class SectionedSpanSizeLookup extends GridLayoutManager.SpanSizeLookup {
+
+  private final SectionedRecyclerViewAdapter<?> adapter;
+  private final GridLayoutManager layoutManager;
+
+  /** The row of each section's header, up to {@link #validRowStartCount}. */
+  private int[] sectionRowStarts;
+  /** The span every item in a section takes up, or -1 if it varies. */
+  private int[] sectionRowSpans;
+  /** The number of rows each section takes up, including its header and footer. */
+  private int[] sectionRowCounts;
+  /** Walked layouts of sections whose items don't all take up the same span. */
+  private SectionSpans[] sectionSpans;
+  /** The size each section had when it was last laid out. */
+  private int[] cachedSizes;
+  /** The {@link #epoch} each section was last laid out in; older entries are stale. */
+  private int[] cachedEpochs;
+
+  private int epoch = 1;
+  private int validRowStartCount;
+  private int cachedSectionCount;
+  private int cachedGeneration = -1;
+  private int cachedSectionsGeneration = -1;
+  private int cachedSpanCount = -1;
+
+  SectionedSpanSizeLookup(
+      SectionedRecyclerViewAdapter<?> adapter, GridLayoutManager layoutManager) {
+    this.adapter = adapter;
+    this.layoutManager = layoutManager;
+    this.sectionRowStarts = new int[0];
+    this.sectionRowSpans = new int[0];
+    this.sectionRowCounts = new int[0];
+    this.sectionSpans = new SectionSpans[0];
+    this.cachedSizes = new int[0];
+    this.cachedEpochs = new int[0];
+  }
+
+  @Override
+  public int getSpanSize(int position) {
+    int spanCount = layoutManager.getSpanCount();
+    PositionManager positionManager = adapter.getPositionManager();
+    long sectionAndPos = positionManager.packedRelativePosition(position);
+    int section = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    if (relativePos == -1 || positionManager.sectionFooterIndex(section) == position) {
+      return spanCount;
+    }
+    int rowSpan = sectionRowSpan(section, spanCount);
+    if (rowSpan != -1) {
+      return rowSpan;
+    }
+    int absPos = position - (section + 1);
+    return clampSpan(adapter.getRowSpan(spanCount, section, relativePos, absPos), spanCount);
+  }
+
+  @Override
+  public int getSpanIndex(int position, int spanCount) {
+    PositionManager positionManager = adapter.getPositionManager();
+    ensureFresh(positionManager, spanCount);
+    long sectionAndPos = positionManager.packedRelativePosition(position);
+    int section = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    if (section == -1
+        || relativePos == -1
+        || positionManager.sectionFooterIndex(section) == position) {
+      return 0;
+    }
+    ensureSection(positionManager, section, spanCount);
+    int rowSpan = sectionRowSpans[section];
+    if (rowSpan != -1) {
+      return (relativePos % itemsPerRow(rowSpan, spanCount)) * rowSpan;
+    }
+    return sectionSpans[section].spanIndices[relativePos];
+  }
+
+  @Override
+  public int getSpanGroupIndex(int adapterPosition, int spanCount) {
+    PositionManager positionManager = adapter.getPositionManager();
+    ensureFresh(positionManager, spanCount);
+    long sectionAndPos = positionManager.packedRelativePosition(adapterPosition);
+    int section = ItemCoord.section(sectionAndPos);
+    int relativePos = ItemCoord.relativePos(sectionAndPos);
+    if (section == -1) {
+      return 0;
+    }
+    int headerRow = rowStart(positionManager, section, spanCount);
+    if (relativePos == -1) {
+      return headerRow;
+    }
+    ensureSection(positionManager, section, spanCount);
+    if (positionManager.sectionFooterIndex(section) == adapterPosition) {
+      return headerRow + sectionRowCounts[section] - 1;
+    }
+    int rowSpan = sectionRowSpans[section];
+    if (rowSpan != -1) {
+      return headerRow + 1 + relativePos / itemsPerRow(rowSpan, spanCount);
+    }
+    return headerRow + 1 + sectionSpans[section].rowIndices[relativePos];
+  }
+
+  /**
+   * Marks the sections holding the given positions to be walked again, since a notify call for
+   * items in them can change what {@code getRowSpan} returns without resizing them. Positions
+   * that can't be located drop every section's layout instead.
+   */
+  void onItemsChanged(PositionManager positionManager, int firstPosition, int lastPosition) {
+    if (positionManager.isDirty()) {
+      dropSections();
+      return;
+    }
+    int first = ItemCoord.section(positionManager.packedRelativePosition(firstPosition));
+    int last = ItemCoord.section(positionManager.packedRelativePosition(lastPosition));
+    if (first == -1 || last == -1) {
+      if (first == last) {
+        dropSections();
+        return;
+      }
+      first = last = Math.max(first, last);
+    }
+    for (int s = first; s <= last && s < cachedSectionCount; s++) {
+      cachedEpochs[s] = 0;
+    }
+    validRowStartCount = Math.min(validRowStartCount, first + 1);
+  }
+
+  private void dropSections() {
+    epoch++;
+    validRowStartCount = 0;
+  }
+
+  /**
+   * Forgets the rows of section headers if the layout changed, and every section's layout if the
+   * span count changed or sections were added, removed or reordered. Sections themselves are
+   * checked for size changes as they're used.
+   */
+  private void ensureFresh(PositionManager positionManager, int spanCount) {
+    if (cachedSpanCount != spanCount) {
+      cachedSpanCount = spanCount;
+      dropSections();
+    }
+    if (cachedSectionsGeneration != positionManager.sectionsGeneration()) {
+      cachedSectionsGeneration = positionManager.sectionsGeneration();
+      dropSections();
+    }
+    if (cachedGeneration == positionManager.generation()) {
+      return;
+    }
+    cachedGeneration = positionManager.generation();
+    validRowStartCount = 0;
+    int sectionCount = positionManager.sectionCount();
+    if (sectionRowStarts.length < sectionCount) {
+      int capacity = Math.max(sectionCount, sectionRowStarts.length * 2);
+      sectionRowStarts = Arrays.copyOf(sectionRowStarts, capacity);
+      sectionRowSpans = Arrays.copyOf(sectionRowSpans, capacity);
+      sectionRowCounts = Arrays.copyOf(sectionRowCounts, capacity);
+      sectionSpans = Arrays.copyOf(sectionSpans, capacity);
+      cachedSizes = Arrays.copyOf(cachedSizes, capacity);
+      cachedEpochs = Arrays.copyOf(cachedEpochs, capacity);
+    }
+    if (cachedSectionCount > sectionCount) {
+      Arrays.fill(sectionSpans, sectionCount, cachedSectionCount, null);
+      Arrays.fill(cachedEpochs, sectionCount, cachedSectionCount, 0);
+    }
+    cachedSectionCount = sectionCount;
+  }
+
+  /** Returns the row of a section's header, summing the rows of sections before it as needed. */
+  private int rowStart(PositionManager positionManager, int section, int spanCount) {
+    if (validRowStartCount == 0) {
+      sectionRowStarts[0] = 0;
+      validRowStartCount = 1;
+    }
+    for (int s = validRowStartCount; s <= section; s++) {
+      ensureSection(positionManager, s - 1, spanCount);
+      sectionRowStarts[s] = sectionRowStarts[s - 1] + sectionRowCounts[s - 1];
+      validRowStartCount = s + 1;
+    }
+    return sectionRowStarts[section];
+  }
+
+  /** Lays out a section's rows, unless they were laid out at its current size already. */
+  private void ensureSection(PositionManager positionManager, int section, int spanCount) {
+    int size = positionManager.sectionSize(section);
+    if (cachedEpochs[section] == epoch && cachedSizes[section] == size) {
+      return;
+    }
+    int rowSpan = sectionRowSpan(section, spanCount);
+    int itemCount = visibleItemCount(positionManager, section);
+    int rowCount = size - itemCount;
+    if (itemCount > 0) {
+      if (rowSpan != -1) {
+        int itemsPerRow = itemsPerRow(rowSpan, spanCount);
+        rowCount += (itemCount + itemsPerRow - 1) / itemsPerRow;
+      } else {
+        sectionSpans[section] =
+            walkSection(positionManager, section, spanCount, sectionSpans[section]);
+        rowCount += sectionSpans[section].rowCount;
+      }
+    }
+    sectionRowSpans[section] = rowSpan;
+    sectionRowCounts[section] = rowCount;
+    cachedSizes[section] = size;
+    cachedEpochs[section] = epoch;
+  }
+
+  /** Returns the span every item in a section takes up, or -1 if each one has to be asked. */
+  private int sectionRowSpan(int section, int spanCount) {
+    int rowSpan = adapter.getSectionRowSpan(spanCount, section);
+    return rowSpan == -1 ? -1 : clampSpan(rowSpan, spanCount);
+  }
+
+  private static int clampSpan(int span, int spanCount) {
+    return Math.max(1, Math.min(span, spanCount));
+  }
+
+  /** Returns the number of items shown in a section, which is zero if it's collapsed or hidden. */
+  private static int visibleItemCount(PositionManager positionManager, int section) {
+    int size = positionManager.sectionSize(section);
+    if (size == 0) {
+      return 0;
+    }
+    int footerCount = positionManager.sectionFooterIndex(section) != -1 ? 1 : 0;
+    return size - 1 - footerCount;
+  }
+
+  private static int itemsPerRow(int rowSpan, int spanCount) {
+    return Math.max(1, spanCount / rowSpan);
+  }
+
+  /**
+   * Lays out a section's items one by one the same way {@link GridLayoutManager} does, wrapping an
+   * item to the next row when it doesn't fit in the current one.
+   */
+  private SectionSpans walkSection(
+      PositionManager positionManager, int section, int spanCount, SectionSpans reuse) {
+    int itemCount = visibleItemCount(positionManager, section);
+    if (itemCount == 0) {
+      return SectionSpans.EMPTY;
+    }
+    SectionSpans spans = reuse;
+    if (spans == null || spans.spanIndices.length < itemCount) {
+      spans = new SectionSpans(itemCount);
+    }
+    int absPos = positionManager.sectionStart(section) - section;
+    int span = 0;
+    int row = 0;
+    for (int i = 0; i < itemCount; i++) {
+      int spanSize = clampSpan(adapter.getRowSpan(spanCount, section, i, absPos + i), spanCount);
+      if (span + spanSize > spanCount) {
+        span = 0;
+        row++;
+      }
+      spans.spanIndices[i] = span;
+      spans.rowIndices[i] = row;
+      span += spanSize;
+    }
+    spans.rowCount = row + 1;
+    return spans;
+  }
+
+  private static class SectionSpans {
+
+    static final SectionSpans EMPTY = new SectionSpans(0);
+
+    final int[] spanIndices;
+    final int[] rowIndices;
+    int rowCount;
+
+    SectionSpans(int itemCount) {
+      this.spanIndices = new int[itemCount];
+      this.rowIndices = new int[itemCount];
+    }
+  }
+}
@@ -7,32 +7,88 @@ import android.view.View;
 public abstract class SectionedViewHolder extends RecyclerView.ViewHolder {
 
   private PositionDelegate positionDelegate;
+  /**
+   * Where the holder was last resolved to, stamped with the adapter position and layout generation
+   * it was resolved at. Reused until either changes, so repeated calls from a click handler don't
+   * look the position up again.
+   */
+  private int stampedPosition = RecyclerView.NO_POSITION;
+
+  private int stampedGeneration;
+  private long stampedCoord;
+  private boolean stampedFooter;
+  private ItemCoord stampedItemCoord;
 
   public SectionedViewHolder(View itemView) {
     super(itemView);
   }
 
-  void setPositionDelegate(PositionDelegate positionDelegate) {
+  /** Called by the adapter at bind time, with what it already looked up for the position. */
+  void stamp(PositionDelegate positionDelegate, int position, long packedCoord, boolean footer) {
     this.positionDelegate = positionDelegate;
+    this.stampedPosition = position;
+    this.stampedGeneration = positionDelegate.generation();
+    this.stampedCoord = packedCoord;
+    this.stampedFooter = footer;
+    this.stampedItemCoord = null;
+  }
+
+  /**
+   * Re-resolves the stamp if the holder has moved or the layout has changed since it was made.
+   * Holders that aren't in the list, such as a pinned sticky header, keep the stamp they were bound
+   * with.
+   */
+  private void resolve() {
+    int position = getAdapterPosition();
+    if (position == RecyclerView.NO_POSITION
+        || (position == stampedPosition && positionDelegate.generation() == stampedGeneration)) {
+      return;
+    }
+    long packedCoord = positionDelegate.packedRelativePosition(position);
+    stamp(positionDelegate, position, packedCoord, positionDelegate.isFooterCoord(packedCoord));
   }
 
   protected ItemCoord getRelativePosition() {
-    return positionDelegate.relativePosition(getAdapterPosition());
+    resolve();
+    if (stampedItemCoord == null) {
+      stampedItemCoord =
+          new ItemCoord(ItemCoord.section(stampedCoord), ItemCoord.relativePos(stampedCoord));
+    }
+    return stampedItemCoord;
+  }
+
+  /**
+   * Like {@link #getRelativePosition()}, but packed with {@link ItemCoord#pack(int, int)} so it
+   * doesn't allocate.
+   */
+  protected long getPackedRelativePosition() {
+    resolve();
+    return stampedCoord;
   }
 
   protected boolean isHeader() {
-    return positionDelegate.isHeader(getAdapterPosition());
+    resolve();
+    return ItemCoord.section(stampedCoord) != -1 && ItemCoord.relativePos(stampedCoord) == -1;
   }
 
   protected boolean isFooter() {
-    return positionDelegate.isFooter(getAdapterPosition());
+    resolve();
+    return stampedFooter;
   }
 
   interface PositionDelegate {
+    /** Changes whenever positions may have moved, invalidating stamps made before. */
+    int generation();
+
     ItemCoord relativePosition(int absolutePosition);
 
+    long packedRelativePosition(int absolutePosition);
+
     boolean isHeader(int absolutePosition);
 
     boolean isFooter(int absolutePosition);
+
+    /** Whether a coordinate from {@link #packedRelativePosition(int)} is a section's footer. */
+    boolean isFooterCoord(long packedCoord);
   }
 }
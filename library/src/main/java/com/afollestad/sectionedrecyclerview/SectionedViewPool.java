@@ -0,0 +1,135 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.util.SparseIntArray;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link RecyclerView.RecycledViewPool} shared by several RecyclerViews showing sectioned
+ * adapters, such as the pages of a ViewPager, so that switching between them reuses holders rather
+ * than inflating new ones. Each type's limit is raised to the most any of the attached
+ * RecyclerViews needs, going by {@link
+ * SectionedRecyclerViewAdapter#getRecommendedMaxRecycledViews(int, int, int, SparseIntArray)}
+ * for what's on screen. Limits are only recomputed when a different set of sections comes into
+ * view.
+ *
+ * <p>Adapters sharing a pool must use the same view type for the same layout, since a holder
+ * created by one can be bound by any other.
+ */
+public class SectionedViewPool extends RecyclerView.RecycledViewPool {
+
+  private final SparseIntArray maxRecycledViews = new SparseIntArray();
+  private final SparseIntArray recommended = new SparseIntArray();
+  private final List<PoolSizer> sizers = new ArrayList<>();
+
+  /**
+   * Shares this pool with a RecyclerView and keeps it sized for its adapter. Children of a {@link
+   * LinearLayoutManager} are recycled into the pool when the RecyclerView is detached, so they can
+   * be reused by the next page shown.
+   */
+  public void attachToRecyclerView(
+      RecyclerView recyclerView, SectionedRecyclerViewAdapter<?> adapter) {
+    detachFromRecyclerView(recyclerView);
+    PoolSizer sizer = new PoolSizer(recyclerView, adapter);
+    sizers.add(sizer);
+    recyclerView.setRecycledViewPool(this);
+    recyclerView.addOnScrollListener(sizer);
+    if (recyclerView.getLayoutManager() instanceof LinearLayoutManager) {
+      ((LinearLayoutManager) recyclerView.getLayoutManager()).setRecycleChildrenOnDetach(true);
+    }
+  }
+
+  /** Stops sizing the pool for a RecyclerView. Limits already raised for it are kept. */
+  public void detachFromRecyclerView(RecyclerView recyclerView) {
+    for (int i = 0; i < sizers.size(); i++) {
+      PoolSizer sizer = sizers.get(i);
+      if (sizer.recyclerView == recyclerView) {
+        recyclerView.removeOnScrollListener(sizer);
+        sizers.remove(i);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Raises each view type's limit to at least what the adapter recommends for the given visible
+   * positions. Limits are never lowered, since other RecyclerViews sharing the pool may need them.
+   */
+  public void updateMaxRecycledViews(
+      SectionedRecyclerViewAdapter<?> adapter,
+      int firstVisiblePosition,
+      int lastVisiblePosition,
+      int spanCount) {
+    adapter.getRecommendedMaxRecycledViews(
+        firstVisiblePosition, lastVisiblePosition, spanCount, recommended);
+    for (int i = 0; i < recommended.size(); i++) {
+      int viewType = recommended.keyAt(i);
+      int max = recommended.valueAt(i);
+      if (max > maxRecycledViews.get(viewType)) {
+        maxRecycledViews.put(viewType, max);
+        setMaxRecycledViews(viewType, max);
+      }
+    }
+  }
+
+  /** Returns the limit this pool has set for a view type, or 0 if it hasn't set one. */
+  public int getMaxRecycledViews(int viewType) {
+    return maxRecycledViews.get(viewType);
+  }
+
+  private static int spanCount(RecyclerView.LayoutManager layoutManager) {
+    if (layoutManager instanceof GridLayoutManager) {
+      return ((GridLayoutManager) layoutManager).getSpanCount();
+    } else if (layoutManager instanceof StaggeredGridLayoutManager) {
+      return ((StaggeredGridLayoutManager) layoutManager).getSpanCount();
+    }
+    return 1;
+  }
+
+  /** Resizes the pool after a layout or scroll brings a different set of sections into view. */
+  private class PoolSizer extends RecyclerView.OnScrollListener {
+
+    final RecyclerView recyclerView;
+    final SectionedRecyclerViewAdapter<?> adapter;
+    private int firstSection = -1;
+    private int lastSection = -1;
+    private int childCount = -1;
+
+    PoolSizer(RecyclerView recyclerView, SectionedRecyclerViewAdapter<?> adapter) {
+      this.recyclerView = recyclerView;
+      this.adapter = adapter;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+      int count = recyclerView.getChildCount();
+      if (count == 0) {
+        return;
+      }
+      int first = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(0));
+      int last = recyclerView.getChildAdapterPosition(recyclerView.getChildAt(count - 1));
+      if (first == RecyclerView.NO_POSITION || last == RecyclerView.NO_POSITION) {
+        return;
+      }
+      if (first > last) {
+        // Reversed layouts lay children out from the end.
+        int swap = first;
+        first = last;
+        last = swap;
+      }
+      int newFirstSection = adapter.getSectionForPosition(first);
+      int newLastSection = adapter.getSectionForPosition(last);
+      if (newFirstSection == firstSection && newLastSection == lastSection && count == childCount) {
+        return;
+      }
+      firstSection = newFirstSection;
+      lastSection = newLastSection;
+      childCount = count;
+      updateMaxRecycledViews(adapter, first, last, spanCount(recyclerView.getLayoutManager()));
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.annotation.RestrictTo;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers which position each ID was handed out for, and throws if another position hands out
+ * the same one. Forgets everything when the layout changes, since positions shift.
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
+class StableIdValidator {
+
+  private final Map<Long, Integer> positionsById;
+  private int generation = -1;
+
+  StableIdValidator() {
+    this.positionsById = new HashMap<>();
+  }
+
+  void check(long id, int position, int layoutGeneration) {
+    if (layoutGeneration != generation) {
+      positionsById.clear();
+      generation = layoutGeneration;
+    }
+    Integer previous = positionsById.put(id, position);
+    if (previous != null && previous != position) {
+      throw new IllegalStateException(
+          "Positions "
+              + previous
+              + " and "
+              + position
+              + " both have the stable ID "
+              + id
+              + ", check getSectionKey() and getItemKey().");
+    }
+  }
+
+  void reset() {
+    positionsById.clear();
+  }
+}
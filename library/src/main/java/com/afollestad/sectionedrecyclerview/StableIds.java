@@ -0,0 +1,65 @@
+package com.afollestad.sectionedrecyclerview;
+
+/**
+ * Packs a stable ID for a header, footer or item into a long, so IDs never collide across kinds or
+ * sections. The top two bits hold the kind, the next 22 bits the section key and the low 40 bits
+ * the item key:
+ *
+ * <pre>
+ * | 63..62 kind | 61..40 section key | 39..0 item key |
+ * </pre>
+ *
+ * Section keys must be in [0, {@link #MAX_SECTION_KEY}] and item keys in [0, {@link
+ * #MAX_ITEM_KEY}]. The unused kind keeps every ID distinct from {@link
+ * android.support.v7.widget.RecyclerView#NO_ID}.
+ */
+public final class StableIds {
+
+  public static final int KIND_ITEM = 0;
+  public static final int KIND_HEADER = 1;
+  public static final int KIND_FOOTER = 2;
+
+  public static final long MAX_SECTION_KEY = (1L << 22) - 1;
+  public static final long MAX_ITEM_KEY = (1L << 40) - 1;
+
+  private static final int SECTION_SHIFT = 40;
+  private static final int KIND_SHIFT = 62;
+
+  private StableIds() {}
+
+  public static long header(long sectionKey) {
+    return pack(KIND_HEADER, sectionKey, 0);
+  }
+
+  public static long footer(long sectionKey) {
+    return pack(KIND_FOOTER, sectionKey, 0);
+  }
+
+  public static long item(long sectionKey, long itemKey) {
+    return pack(KIND_ITEM, sectionKey, itemKey);
+  }
+
+  public static int kind(long id) {
+    return (int) (id >>> KIND_SHIFT);
+  }
+
+  public static long sectionKey(long id) {
+    return (id >>> SECTION_SHIFT) & MAX_SECTION_KEY;
+  }
+
+  public static long itemKey(long id) {
+    return id & MAX_ITEM_KEY;
+  }
+
+  private static long pack(int kind, long sectionKey, long itemKey) {
+    if (sectionKey < 0 || sectionKey > MAX_SECTION_KEY) {
+      throw new IllegalArgumentException(
+          "Section key " + sectionKey + " is out of range, it must be 0 to " + MAX_SECTION_KEY);
+    }
+    if (itemKey < 0 || itemKey > MAX_ITEM_KEY) {
+      throw new IllegalArgumentException(
+          "Item key " + itemKey + " is out of range, it must be 0 to " + MAX_ITEM_KEY);
+    }
+    return ((long) kind << KIND_SHIFT) | (sectionKey << SECTION_SHIFT) | itemKey;
+  }
+}
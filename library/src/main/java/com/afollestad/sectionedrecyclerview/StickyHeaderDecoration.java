@@ -0,0 +1,211 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.graphics.Canvas;
+import android.support.v4.util.LruCache;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+import java.util.Collections;
+
+/**
+ * Pins the header of the topmost section to the top of a vertical RecyclerView, and pushes it up
+ * when the next section's header scrolls into it. Header views are created, bound and measured
+ * once per section and kept in a small LRU; they're only bound again when a notified change
+ * touches their header, or positions before it. Drawing a frame for the same section doesn't
+ * allocate.
+ */
+public class StickyHeaderDecoration<VH extends SectionedViewHolder>
+    extends RecyclerView.ItemDecoration {
+
+  private static final int DEFAULT_MAX_CACHED_HEADERS = 4;
+
+  private final SectionedRecyclerViewAdapter<VH> adapter;
+  private final LruCache<Integer, CachedHeader> headerCache;
+  private final HeaderInvalidator headerInvalidator;
+
+  private RecyclerView recyclerView;
+  private boolean observing;
+  private int currentSection = -1;
+  private CachedHeader currentHeader;
+  private int measuredWidth = -1;
+
+  public StickyHeaderDecoration(SectionedRecyclerViewAdapter<VH> adapter) {
+    this(adapter, DEFAULT_MAX_CACHED_HEADERS);
+  }
+
+  public StickyHeaderDecoration(SectionedRecyclerViewAdapter<VH> adapter, int maxCachedHeaders) {
+    this.adapter = adapter;
+    this.headerCache = new LruCache<>(maxCachedHeaders);
+    this.headerInvalidator = new HeaderInvalidator();
+  }
+
+  /** Adds this decoration to a RecyclerView, removing it from the one it was on before. */
+  public void attachToRecyclerView(RecyclerView recyclerView) {
+    if (this.recyclerView == recyclerView) {
+      return;
+    }
+    detachFromRecyclerView();
+    this.recyclerView = recyclerView;
+    recyclerView.addItemDecoration(this);
+  }
+
+  /**
+   * Removes this decoration from its RecyclerView and stops observing the adapter. Decorations
+   * added with {@link RecyclerView#addItemDecoration(RecyclerView.ItemDecoration)} should be
+   * removed with this too, otherwise the adapter keeps a reference to them.
+   */
+  public void detachFromRecyclerView() {
+    if (recyclerView != null) {
+      recyclerView.removeItemDecoration(this);
+      recyclerView = null;
+    }
+    if (observing) {
+      adapter.unregisterAdapterDataObserver(headerInvalidator);
+      observing = false;
+    }
+    invalidateHeaders();
+  }
+
+  /** Drops every cached header view, so they're created and bound again when they're drawn. */
+  public void invalidateHeaders() {
+    headerCache.evictAll();
+    currentSection = -1;
+    currentHeader = null;
+  }
+
+  @Override
+  public void onDrawOver(Canvas canvas, RecyclerView parent, RecyclerView.State state) {
+    recyclerView = parent;
+    if (!observing) {
+      // Registered on first draw rather than up front, so setHasStableIds() can still be called.
+      adapter.registerAdapterDataObserver(headerInvalidator);
+      observing = true;
+    }
+    if (parent.getChildCount() == 0) {
+      return;
+    }
+    int topPosition = parent.getChildAdapterPosition(parent.getChildAt(0));
+    if (topPosition == RecyclerView.NO_POSITION) {
+      return;
+    }
+    int section = ItemCoord.section(adapter.getPackedRelativePosition(topPosition));
+    if (section == -1) {
+      return;
+    }
+    View header = headerFor(section, parent).itemView;
+
+    int top = parent.getPaddingTop();
+    PositionManager positionManager = adapter.getPositionManager();
+    int nextHeaderIndex =
+        positionManager.sectionStart(section) + positionManager.sectionSize(section);
+    RecyclerView.ViewHolder nextHeader = parent.findViewHolderForAdapterPosition(nextHeaderIndex);
+    if (nextHeader != null && nextHeader.itemView.getTop() < top + header.getHeight()) {
+      top = nextHeader.itemView.getTop() - header.getHeight();
+    }
+
+    int saveCount = canvas.save();
+    canvas.translate(parent.getPaddingLeft(), top);
+    header.draw(canvas);
+    canvas.restoreToCount(saveCount);
+  }
+
+  private VH headerFor(int section, RecyclerView parent) {
+    if (parent.getWidth() != measuredWidth) {
+      invalidateHeaders();
+      measuredWidth = parent.getWidth();
+    }
+    if (section == currentSection && !currentHeader.stale) {
+      return currentHeader.holder;
+    }
+    int viewType = adapter.getHeaderViewType(section);
+    CachedHeader header = headerCache.get(section);
+    if (header == null || header.holder.getItemViewType() != viewType) {
+      header = new CachedHeader(adapter.createViewHolder(parent, viewType));
+      headerCache.put(section, header);
+      header.stale = true;
+    }
+    if (header.stale) {
+      PositionManager positionManager = adapter.getPositionManager();
+      header.position = positionManager.sectionHeaderIndex(section);
+      header.holder.stamp(
+          adapter.getPositionDelegate(), header.position, ItemCoord.pack(section, -1), false);
+      adapter.onBindHeaderViewHolder(
+          header.holder, section, adapter.isSectionExpanded(section), Collections.emptyList());
+      measure(header.holder.itemView, parent);
+      header.stale = false;
+    }
+    currentSection = section;
+    currentHeader = header;
+    return header.holder;
+  }
+
+  private static void measure(View view, RecyclerView parent) {
+    int width = parent.getWidth() - parent.getPaddingLeft() - parent.getPaddingRight();
+    int widthSpec = View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY);
+    int heightSpec = View.MeasureSpec.makeMeasureSpec(parent.getHeight(), View.MeasureSpec.AT_MOST);
+    ViewGroup.LayoutParams layoutParams = view.getLayoutParams();
+    if (layoutParams != null) {
+      widthSpec = ViewGroup.getChildMeasureSpec(widthSpec, 0, layoutParams.width);
+      heightSpec = ViewGroup.getChildMeasureSpec(heightSpec, 0, layoutParams.height);
+    }
+    view.measure(widthSpec, heightSpec);
+    view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+  }
+
+  /**
+   * Marks cached headers at or after a position stale, so they're bound again the next time
+   * they're drawn. If {@code end} isn't -1, only headers before it are marked.
+   */
+  private void markStale(int start, int end) {
+    for (CachedHeader header : headerCache.snapshot().values()) {
+      if (header.position >= start && (end == -1 || header.position < end)) {
+        header.stale = true;
+      }
+    }
+  }
+
+  /** A cached header, and the position it was bound at. */
+  private class CachedHeader {
+
+    final VH holder;
+    int position;
+    boolean stale;
+
+    CachedHeader(VH holder) {
+      this.holder = holder;
+    }
+  }
+
+  /**
+   * A changed header is bound again in place. Inserts, removals and moves may shift which section
+   * a cached header belongs to, so every header from the first position they touch on is bound
+   * again; the holders themselves are kept.
+   */
+  private class HeaderInvalidator extends RecyclerView.AdapterDataObserver {
+
+    @Override
+    public void onChanged() {
+      markStale(0, -1);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+      markStale(positionStart, positionStart + itemCount);
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      markStale(positionStart, -1);
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      markStale(positionStart, -1);
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      markStale(Math.min(fromPosition, toPosition), -1);
+    }
+  }
+}
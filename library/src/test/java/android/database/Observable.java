@@ -0,0 +1,35 @@
+package android.database;
+
+import java.util.ArrayList;
+
+/**
+ * Stands in for the android.jar class in unit tests, whose mockable methods throw. RecyclerView's
+ * adapters keep their observers in one of these.
+ */
+public abstract class Observable<T> {
+
+  protected final ArrayList<T> mObservers = new ArrayList<>();
+
+  public void registerObserver(T observer) {
+    if (observer == null) {
+      throw new IllegalArgumentException("The observer is null.");
+    }
+    if (mObservers.contains(observer)) {
+      throw new IllegalStateException("Observer " + observer + " is already registered.");
+    }
+    mObservers.add(observer);
+  }
+
+  public void unregisterObserver(T observer) {
+    if (observer == null) {
+      throw new IllegalArgumentException("The observer is null.");
+    }
+    if (!mObservers.remove(observer)) {
+      throw new IllegalStateException("Observer " + observer + " was not registered.");
+    }
+  }
+
+  public void unregisterAll() {
+    mObservers.clear();
+  }
+}
@@ -0,0 +1,89 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Stands in for the android.jar class in unit tests, whose mockable methods throw. Keys are kept
+ * sorted, like the real one.
+ */
+@SuppressWarnings("unchecked")
+public class SparseArray<E> {
+
+  private int[] keys;
+  private Object[] values;
+  private int size;
+
+  public SparseArray() {
+    this(10);
+  }
+
+  public SparseArray(int initialCapacity) {
+    keys = new int[initialCapacity];
+    values = new Object[initialCapacity];
+  }
+
+  public E get(int key) {
+    return get(key, null);
+  }
+
+  public E get(int key, E valueIfKeyNotFound) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    return index < 0 ? valueIfKeyNotFound : (E) values[index];
+  }
+
+  public void put(int key, E value) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+    index = ~index;
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+      values = Arrays.copyOf(values, keys.length);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    keys[index] = key;
+    values[index] = value;
+    size++;
+  }
+
+  public void delete(int key) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      removeAt(index);
+    }
+  }
+
+  public void remove(int key) {
+    delete(key);
+  }
+
+  public void removeAt(int index) {
+    System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+    System.arraycopy(values, index + 1, values, index, size - index - 1);
+    values[--size] = null;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int keyAt(int index) {
+    return keys[index];
+  }
+
+  public E valueAt(int index) {
+    return (E) values[index];
+  }
+
+  public int indexOfKey(int key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  public void clear() {
+    Arrays.fill(values, 0, size, null);
+    size = 0;
+  }
+}
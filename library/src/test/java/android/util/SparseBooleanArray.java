@@ -0,0 +1,79 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * Stands in for the android.jar class in unit tests, whose mockable methods throw. Keys are kept
+ * sorted, like the real one.
+ */
+public class SparseBooleanArray {
+
+  private int[] keys;
+  private boolean[] values;
+  private int size;
+
+  public SparseBooleanArray() {
+    this(10);
+  }
+
+  public SparseBooleanArray(int initialCapacity) {
+    keys = new int[initialCapacity];
+    values = new boolean[initialCapacity];
+  }
+
+  public boolean get(int key) {
+    return get(key, false);
+  }
+
+  public boolean get(int key, boolean valueIfKeyNotFound) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    return index < 0 ? valueIfKeyNotFound : values[index];
+  }
+
+  public void put(int key, boolean value) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      values[index] = value;
+      return;
+    }
+    index = ~index;
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+      values = Arrays.copyOf(values, keys.length);
+    }
+    System.arraycopy(keys, index, keys, index + 1, size - index);
+    System.arraycopy(values, index, values, index + 1, size - index);
+    keys[index] = key;
+    values[index] = value;
+    size++;
+  }
+
+  public void delete(int key) {
+    int index = Arrays.binarySearch(keys, 0, size, key);
+    if (index >= 0) {
+      System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+      System.arraycopy(values, index + 1, values, index, size - index - 1);
+      size--;
+    }
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int keyAt(int index) {
+    return keys[index];
+  }
+
+  public boolean valueAt(int index) {
+    return values[index];
+  }
+
+  public int indexOfKey(int key) {
+    return Arrays.binarySearch(keys, 0, size, key);
+  }
+
+  public void clear() {
+    size = 0;
+  }
+}
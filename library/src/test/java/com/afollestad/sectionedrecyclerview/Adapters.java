@@ -0,0 +1,17 @@
+package com.afollestad.sectionedrecyclerview;
+
+/** Fixtures shared by the adapter tests. */
+final class Adapters {
+
+  private Adapters() {}
+
+  /**
+   * Observes an adapter and lays it out once, like RecyclerView does when it's given the adapter,
+   * so that notify calls are tracked from then on.
+   */
+  static <A extends SectionedRecyclerViewAdapter<?>> A attach(A adapter) {
+    adapter.observeChanges();
+    adapter.getItemCount();
+    return adapter;
+  }
+}
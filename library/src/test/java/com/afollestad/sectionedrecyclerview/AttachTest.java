@@ -0,0 +1,56 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class AttachTest {
+
+  private ItemCountCacheTest.CountingAdapter adapter;
+
+  @Before
+  public void before() {
+    adapter = new ItemCountCacheTest.CountingAdapter(new int[] {3, 2, 4});
+  }
+
+  @Test
+  public void test_stable_ids_can_be_set_after_item_count() {
+    assertThat(adapter.getItemCount()).isEqualTo(12);
+    adapter.setHasStableIds(true);
+    assertThat(adapter.hasStableIds()).isTrue();
+  }
+
+  @Test
+  public void test_layout_is_rebuilt_every_call_until_attached() {
+    adapter.getItemCount();
+    adapter.getItemCount();
+    assertThat(adapter.itemCountQueries).isEqualTo(6);
+    assertThat(adapter.getAbsolutePosition(1, 0)).isEqualTo(5);
+    assertThat(adapter.itemCountQueries).isEqualTo(9);
+  }
+
+  @Test
+  public void test_attached_adapter_tracks_notify_calls() {
+    adapter.onAttachedToRecyclerView(null);
+    assertThat(adapter.hasObservers()).isTrue();
+    adapter.getItemCount();
+    adapter.itemCountQueries = 0;
+    assertThat(adapter.getAbsolutePosition(1, 0)).isEqualTo(5);
+    assertThat(adapter.itemCountQueries).isEqualTo(0);
+    adapter.notifyDataSetChanged();
+    adapter.getItemCount();
+    assertThat(adapter.itemCountQueries).isEqualTo(3);
+  }
+
+  @Test
+  public void test_observer_is_unregistered_after_last_detach() {
+    adapter.onAttachedToRecyclerView(null);
+    adapter.onAttachedToRecyclerView(null);
+    adapter.onDetachedFromRecyclerView(null);
+    assertThat(adapter.hasObservers()).isTrue();
+    adapter.onDetachedFromRecyclerView(null);
+    assertThat(adapter.hasObservers()).isFalse();
+    adapter.setHasStableIds(true);
+  }
+}
@@ -0,0 +1,59 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.StaggeredGridLayoutManager;
+import android.view.ViewGroup;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("deprecation")
+public class FullSpanTest {
+
+  private ItemCountCacheTest.CountingAdapter adapter;
+  private TestView view;
+  private SectionedViewHolder holder;
+
+  @Before
+  public void before() {
+    // Header 0, items 1-2, header 3, item 4
+    adapter = new ItemCountCacheTest.CountingAdapter(new int[] {2, 1});
+    view = new TestView();
+    holder = new SectionedViewHolder(view) {};
+  }
+
+  @Test
+  public void test_staggered_params_only_set_when_flipped() {
+    StaggeredGridLayoutManager.LayoutParams params =
+        new StaggeredGridLayoutManager.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    view.params = params;
+
+    adapter.onBindViewHolder(holder, 0);
+    assertThat(params.isFullSpan()).isTrue();
+    assertThat(view.setCalls).isEqualTo(1);
+
+    adapter.onBindViewHolder(holder, 3);
+    assertThat(view.setCalls).isEqualTo(1);
+
+    adapter.onBindViewHolder(holder, 1);
+    adapter.onBindViewHolder(holder, 4);
+    assertThat(params.isFullSpan()).isFalse();
+    assertThat(view.setCalls).isEqualTo(2);
+    assertThat(view.params).isSameAs(params);
+  }
+
+  @Test
+  public void test_grid_params_are_left_alone() {
+    GridLayoutManager.LayoutParams params =
+        new GridLayoutManager.LayoutParams(
+            ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    view.params = params;
+
+    adapter.onBindViewHolder(holder, 0);
+    adapter.onBindViewHolder(holder, 1);
+    assertThat(view.params).isSameAs(params);
+    assertThat(view.setCalls).isEqualTo(0);
+  }
+}
@@ -0,0 +1,169 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ItemCountCacheTest {
+
+  private CountingAdapter adapter;
+
+  @Before
+  public void before() {
+    adapter = Adapters.attach(new CountingAdapter(new int[] {3, 2, 4}));
+    adapter.itemCountQueries = 0;
+  }
+
+  @Test
+  public void test_absolute_position_uses_cached_counts() {
+    assertThat(adapter.getAbsolutePosition(1, 1)).isEqualTo(6);
+    assertThat(adapter.getAbsolutePosition(1, 2)).isEqualTo(-1);
+    assertThat(adapter.itemCountQueries).isEqualTo(0);
+  }
+
+  @Test
+  public void test_insert_and_remove_update_cached_count() {
+    adapter.itemCounts[1] = 5;
+    adapter.notifyItemInsertedInSection(1, 2, 3);
+    assertThat(adapter.getItemCount()).isEqualTo(15);
+    assertThat(adapter.getAbsolutePosition(2, 0)).isEqualTo(11);
+
+    adapter.itemCounts[0] = 1;
+    adapter.notifyItemRemovedInSection(0, 1, 2);
+    assertThat(adapter.getItemCount()).isEqualTo(13);
+    assertThat(adapter.getAbsolutePosition(2, 0)).isEqualTo(9);
+    assertThat(adapter.itemCountQueries).isEqualTo(0);
+  }
+
+  @Test
+  public void test_section_changed_refreshes_only_that_section() {
+    adapter.itemCounts[2] = 1;
+    adapter.notifySectionChanged(2);
+    assertThat(adapter.itemCountQueries).isEqualTo(1);
+    assertThat(adapter.getItemCount()).isEqualTo(9);
+    assertThat(adapter.getAbsolutePosition(2, 0)).isEqualTo(8);
+    assertThat(adapter.getAbsolutePosition(2, 1)).isEqualTo(-1);
+    assertThat(adapter.itemCountQueries).isEqualTo(1);
+  }
+
+  @Test
+  public void test_data_set_changed_polls_every_section() {
+    adapter.notifyDataSetChanged();
+    adapter.getItemCount();
+    assertThat(adapter.itemCountQueries).isEqualTo(3);
+  }
+
+  @Test
+  public void test_item_count_source_is_asked_once_per_rebuild() {
+    SourceAdapter sourceAdapter = Adapters.attach(new SourceAdapter(new int[] {3, 2, 4}));
+    assertThat(sourceAdapter.getItemCount()).isEqualTo(12);
+    sourceAdapter.notifyDataSetChanged();
+    assertThat(sourceAdapter.getItemCount()).isEqualTo(12);
+    assertThat(sourceAdapter.itemCountQueries).isEqualTo(0);
+    assertThat(sourceAdapter.bulkQueries).isEqualTo(2);
+  }
+
+  @Test
+  public void test_collapse_and_expand_all_use_cached_counts() {
+    NotifyRecorder recorder = new NotifyRecorder();
+    adapter.setMetricsListener(recorder);
+
+    adapter.collapseAllSections();
+    assertThat(adapter.getItemCount()).isEqualTo(3);
+    assertThat(recorder.notifications)
+        .containsExactly(
+            "ITEMS_CHANGED 0 1",
+            "ITEMS_REMOVED 1 3",
+            "ITEMS_CHANGED 1 1",
+            "ITEMS_REMOVED 2 2",
+            "ITEMS_CHANGED 2 1",
+            "ITEMS_REMOVED 3 4")
+        .inOrder();
+
+    recorder.notifications.clear();
+    adapter.expandAllSections();
+    assertThat(adapter.getItemCount()).isEqualTo(12);
+    assertThat(recorder.notifications)
+        .containsExactly(
+            "ITEMS_CHANGED 0 1",
+            "ITEMS_INSERTED 1 3",
+            "ITEMS_CHANGED 4 1",
+            "ITEMS_INSERTED 5 2",
+            "ITEMS_CHANGED 7 1",
+            "ITEMS_INSERTED 8 4")
+        .inOrder();
+    assertThat(adapter.getAbsolutePosition(2, 0)).isEqualTo(8);
+    assertThat(adapter.itemCountQueries).isEqualTo(0);
+  }
+
+  static class NotifyRecorder implements MetricsListener {
+
+    final List<String> notifications = new ArrayList<>();
+
+    @Override
+    public void onInvalidate(long durationNanos, int sectionCount, int itemCount) {}
+
+    @Override
+    public void onBind(int viewType, boolean partial, long durationNanos) {}
+
+    @Override
+    public void onNotify(NotifyType type, int positionStart, int itemCount) {
+      notifications.add(type + " " + positionStart + " " + itemCount);
+    }
+  }
+
+  static class CountingAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    final int[] itemCounts;
+    int itemCountQueries;
+
+    CountingAdapter(int[] itemCounts) {
+      this.itemCounts = itemCounts;
+    }
+
+    @Override
+    public int getSectionCount() {
+      return itemCounts.length;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      itemCountQueries++;
+      return itemCounts[section];
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new TestView()) {};
+    }
+  }
+
+  static class SourceAdapter extends CountingAdapter implements ItemCountSource {
+
+    int bulkQueries;
+
+    SourceAdapter(int[] itemCounts) {
+      super(itemCounts);
+    }
+
+    @Override
+    public void getItemCounts(int[] counts, int sectionCount) {
+      bulkQueries++;
+      System.arraycopy(itemCounts, 0, counts, 0, sectionCount);
+    }
+  }
+}
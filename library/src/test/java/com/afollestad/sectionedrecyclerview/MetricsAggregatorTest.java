@@ -0,0 +1,140 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.afollestad.sectionedrecyclerview.MetricsListener.NotifyType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetricsAggregatorTest {
+
+  private MetricsAggregator metrics;
+
+  @Before
+  public void before() {
+    metrics = new MetricsAggregator(100);
+  }
+
+  @Test
+  public void test_empty() {
+    assertThat(metrics.getInvalidateCount()).isEqualTo(0);
+    assertThat(metrics.getInvalidatePercentile(50)).isEqualTo(0);
+    assertThat(metrics.getViewTypes()).isEmpty();
+    assertThat(metrics.getBindCount(1)).isEqualTo(0);
+    assertThat(metrics.getBindPercentile(1, 99)).isEqualTo(0);
+  }
+
+  @Test
+  public void test_invalidate_percentiles() {
+    for (int i = 1; i <= 100; i++) {
+      metrics.onInvalidate(i, 10, i * 10);
+    }
+    assertThat(metrics.getInvalidateCount()).isEqualTo(100);
+    assertThat(metrics.getInvalidatePercentile(50)).isEqualTo(50);
+    assertThat(metrics.getInvalidatePercentile(99)).isEqualTo(99);
+    assertThat(metrics.getInvalidatePercentile(100)).isEqualTo(100);
+    assertThat(metrics.getInvalidatePercentile(0)).isEqualTo(1);
+    assertThat(metrics.getLastSectionCount()).isEqualTo(10);
+    assertThat(metrics.getLastItemCount()).isEqualTo(1000);
+  }
+
+  @Test
+  public void test_percentiles_use_most_recent_samples() {
+    for (int i = 0; i < 100; i++) {
+      metrics.onInvalidate(1000, 1, 1);
+    }
+    for (int i = 0; i < 100; i++) {
+      metrics.onInvalidate(1, 1, 1);
+    }
+    assertThat(metrics.getInvalidateCount()).isEqualTo(200);
+    assertThat(metrics.getInvalidatePercentile(100)).isEqualTo(1);
+  }
+
+  @Test
+  public void test_binds_by_view_type() {
+    for (int i = 0; i < 5; i++) {
+      metrics.onBind(-2, false, 100);
+    }
+    for (int i = 0; i < 10; i++) {
+      metrics.onBind(-1, i % 2 == 0, i);
+    }
+    assertThat(metrics.getViewTypes()).asList().containsExactly(-2, -1).inOrder();
+    assertThat(metrics.getBindCount(-2)).isEqualTo(5);
+    assertThat(metrics.getPartialBindCount(-2)).isEqualTo(0);
+    assertThat(metrics.getBindCount(-1)).isEqualTo(10);
+    assertThat(metrics.getPartialBindCount(-1)).isEqualTo(5);
+    assertThat(metrics.getBindPercentile(-2, 50)).isEqualTo(100);
+    assertThat(metrics.getBindPercentile(-1, 100)).isEqualTo(9);
+  }
+
+  @Test
+  public void test_many_view_types() {
+    for (int viewType = 0; viewType < 20; viewType++) {
+      metrics.onBind(viewType, false, viewType);
+    }
+    assertThat(metrics.getViewTypes()).hasLength(20);
+    assertThat(metrics.getBindPercentile(19, 50)).isEqualTo(19);
+  }
+
+  @Test
+  public void test_notify_counts() {
+    metrics.onNotify(NotifyType.ITEMS_INSERTED, 0, 3);
+    metrics.onNotify(NotifyType.ITEMS_INSERTED, 5, 1);
+    metrics.onNotify(NotifyType.DATA_SET_CHANGED, 0, -1);
+    assertThat(metrics.getNotifyCount(NotifyType.ITEMS_INSERTED)).isEqualTo(2);
+    assertThat(metrics.getNotifyCount(NotifyType.DATA_SET_CHANGED)).isEqualTo(1);
+    assertThat(metrics.getNotifyCount(NotifyType.ITEMS_MOVED)).isEqualTo(0);
+  }
+
+  @Test
+  public void test_adapter_reports_index_rebuilds() {
+    SectionIndexerTest.LabeledAdapter adapter = new SectionIndexerTest.LabeledAdapter();
+    adapter.setMetricsListener(metrics);
+    Adapters.attach(adapter);
+    assertThat(adapter.getItemCount()).isEqualTo(9);
+    adapter.getItemCount();
+    assertThat(metrics.getInvalidateCount()).isEqualTo(1);
+    assertThat(metrics.getLastSectionCount()).isEqualTo(4);
+    assertThat(metrics.getLastItemCount()).isEqualTo(9);
+  }
+
+  @Test
+  public void test_adapter_reports_rebuilds_from_cached_counts() {
+    SectionIndexerTest.LabeledAdapter adapter = new SectionIndexerTest.LabeledAdapter();
+    adapter.setMetricsListener(metrics);
+    Adapters.attach(adapter);
+    adapter.collapseAllSections();
+    assertThat(metrics.getInvalidateCount()).isEqualTo(2);
+    assertThat(metrics.getLastItemCount()).isEqualTo(3);
+    adapter.expandAllSections();
+    assertThat(metrics.getInvalidateCount()).isEqualTo(3);
+    assertThat(metrics.getLastItemCount()).isEqualTo(9);
+  }
+
+  @Test
+  public void test_reset() {
+    metrics.onInvalidate(10, 1, 1);
+    metrics.onBind(-1, true, 10);
+    metrics.onNotify(NotifyType.ITEMS_CHANGED, 0, 1);
+    metrics.reset();
+    assertThat(metrics.getInvalidateCount()).isEqualTo(0);
+    assertThat(metrics.getViewTypes()).isEmpty();
+    assertThat(metrics.getNotifyCount(NotifyType.ITEMS_CHANGED)).isEqualTo(0);
+    metrics.onBind(-1, false, 5);
+    assertThat(metrics.getBindCount(-1)).isEqualTo(1);
+    assertThat(metrics.getPartialBindCount(-1)).isEqualTo(0);
+    assertThat(metrics.getBindPercentile(-1, 50)).isEqualTo(5);
+  }
+
+  @Test
+  public void test_sample_count_stops_at_max_value() {
+    MetricsAggregator.LatencySamples samples =
+        new MetricsAggregator.LatencySamples(3, Integer.MAX_VALUE - 2);
+    for (int i = 1; i <= 5; i++) {
+      samples.record(i * 10);
+    }
+    assertThat(samples.count()).isEqualTo(Integer.MAX_VALUE);
+    assertThat(samples.percentile(0)).isEqualTo(30);
+    assertThat(samples.percentile(100)).isEqualTo(50);
+  }
+}
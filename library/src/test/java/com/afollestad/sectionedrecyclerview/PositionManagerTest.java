@@ -3,6 +3,9 @@ package com.afollestad.sectionedrecyclerview;
 import static com.google.common.truth.Truth.assertThat;
 import static junit.framework.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -171,6 +174,63 @@ public class PositionManagerTest {
     assertThat(positionManager.relativePosition(12)).isEqualTo(new ItemCoord(1, 4));
   }
 
+  @Test
+  public void test_lookups_skip_hidden_and_collapsed_sections() {
+    // Header 0 (section 0, collapsed)
+    // Header 1 (section 2, section 1 is empty and hidden)
+    // 2
+    // 3
+    // Footer 4
+    positionManager.collapseSection(0);
+    assertThat(
+            positionManager.invalidate(
+                new ItemProvider() {
+                  @Override
+                  public int getSectionCount() {
+                    return 3;
+                  }
+
+                  @Override
+                  public int getItemCount(int sectionIndex) {
+                    return sectionIndex == 1 ? 0 : 2;
+                  }
+
+                  @Override
+                  public boolean showHeadersForEmptySections() {
+                    return false;
+                  }
+
+                  @Override
+                  public boolean showFooters() {
+                    return true;
+                  }
+                }))
+        .isEqualTo(5);
+    assertThat(positionManager.sectionId(0)).isEqualTo(0);
+    assertThat(positionManager.sectionId(1)).isEqualTo(2);
+    assertThat(positionManager.isFooter(0)).isFalse();
+    assertThat(positionManager.isFooter(4)).isTrue();
+    assertThat(positionManager.footerId(4)).isEqualTo(2);
+    assertThat(positionManager.relativePosition(3)).isEqualTo(new ItemCoord(2, 1));
+    assertThat(positionManager.sectionHeaderIndex(1)).isEqualTo(-1);
+    assertThat(positionManager.sectionHeaderIndex(2)).isEqualTo(1);
+    assertThat(positionManager.sectionFooterIndex(0)).isEqualTo(-1);
+    assertThat(positionManager.sectionFooterIndex(2)).isEqualTo(4);
+  }
+
+  @Test
+  public void test_packed_relative_pos() {
+    long header = positionManager.packedRelativePosition(6);
+    assertThat(ItemCoord.section(header)).isEqualTo(1);
+    assertThat(ItemCoord.relativePos(header)).isEqualTo(-1);
+    long item = positionManager.packedRelativePosition(9);
+    assertThat(ItemCoord.section(item)).isEqualTo(1);
+    assertThat(ItemCoord.relativePos(item)).isEqualTo(2);
+    assertThat(ItemCoord.section(ItemCoord.pack(-1, -1))).isEqualTo(-1);
+    assertThat(ItemCoord.relativePos(ItemCoord.pack(Integer.MAX_VALUE, Integer.MIN_VALUE)))
+        .isEqualTo(Integer.MIN_VALUE);
+  }
+
   @Test
   public void test_absolute_pos_no_footers() {
     assertThat(positionManager.absolutePosition(new ItemCoord(0, 0))).isEqualTo(1);
@@ -220,6 +280,19 @@ public class PositionManagerTest {
     assertThat(positionManager.absolutePosition(new ItemCoord(-5, 3))).isEqualTo(-1);
   }
 
+  @Test
+  public void test_section_size() {
+    assertThat(positionManager.sectionSize(0)).isEqualTo(6);
+    assertThat(positionManager.sectionSize(1)).isEqualTo(6);
+    assertThat(positionManager.sectionSize(2)).isEqualTo(0);
+
+    showFooters = true;
+    positionManager.collapseSection(0);
+    invalidate();
+    assertThat(positionManager.sectionSize(0)).isEqualTo(1);
+    assertThat(positionManager.sectionSize(1)).isEqualTo(7);
+  }
+
   @Test
   public void test_is_section_expanded_true() {
     assertThat(positionManager.isSectionExpanded(0)).isTrue();
@@ -298,6 +371,16 @@ public class PositionManagerTest {
     assertThat(invalidate()).isEqualTo(12);
   }
 
+  @Test
+  public void test_collapsed_state_follows_inserted_and_removed_sections() {
+    positionManager.collapseSection(1);
+    positionManager.insertSections(0, 1);
+    assertThat(positionManager.isSectionExpanded(1)).isTrue();
+    positionManager.removeSections(0, 1);
+    assertThat(positionManager.isSectionExpanded(1)).isFalse();
+    assertThat(invalidate()).isEqualTo(7);
+  }
+
   @Test
   public void test_toggle_expanded() {
     positionManager.collapseSection(1);
@@ -308,11 +391,153 @@ public class PositionManagerTest {
     assertThat(invalidate()).isEqualTo(7);
   }
 
+  @Test
+  public void test_collapse_updates_index_in_place() {
+    showFooters = true;
+    invalidate();
+    positionManager.collapseSection(0);
+    assertThat(positionManager.isDirty()).isFalse();
+    assertThat(positionManager.sectionHeaderIndex(1)).isEqualTo(1);
+    assertThat(positionManager.relativePosition(3)).isEqualTo(new ItemCoord(1, 1));
+    assertThat(positionManager.footerId(7)).isEqualTo(1);
+    positionManager.expandSection(0);
+    assertThat(positionManager.sectionHeaderIndex(1)).isEqualTo(7);
+  }
+
+  @Test
+  public void test_incremental_updates_match_rebuild() {
+    final List<Integer> counts = new ArrayList<>();
+    final List<Boolean> collapsed = new ArrayList<>();
+    ItemProvider provider =
+        new ItemProvider() {
+          @Override
+          public int getSectionCount() {
+            return counts.size();
+          }
+
+          @Override
+          public int getItemCount(int sectionIndex) {
+            return counts.get(sectionIndex);
+          }
+
+          @Override
+          public boolean showHeadersForEmptySections() {
+            return false;
+          }
+
+          @Override
+          public boolean showFooters() {
+            return true;
+          }
+        };
+    Random random = new Random(7);
+    for (int i = 0; i < 40; i++) {
+      counts.add(random.nextInt(4));
+      collapsed.add(false);
+    }
+    positionManager = new PositionManager();
+    positionManager.invalidate(provider);
+
+    for (int step = 0; step < 400; step++) {
+      int section = random.nextInt(counts.size());
+      switch (random.nextInt(6)) {
+        case 0:
+          counts.add(section, random.nextInt(4));
+          collapsed.add(section, false);
+          positionManager.insertSections(section, 1);
+          break;
+        case 1:
+          counts.add(random.nextInt(3));
+          collapsed.add(false);
+          positionManager.insertSections(counts.size() - 1, 1);
+          break;
+        case 2:
+          if (counts.size() > 1) {
+            counts.remove(section);
+            collapsed.remove(section);
+            positionManager.removeSections(section, 1);
+          }
+          break;
+        case 3:
+          int toSection = random.nextInt(counts.size());
+          counts.add(toSection, counts.remove(section));
+          collapsed.add(toSection, collapsed.remove(section));
+          positionManager.moveSection(section, toSection);
+          break;
+        case 4:
+          counts.set(section, random.nextInt(5));
+          positionManager.updateSectionItemCount(section, counts.get(section));
+          break;
+        default:
+          collapsed.set(section, !collapsed.get(section));
+          positionManager.toggleSectionExpanded(section);
+          break;
+      }
+      assertThat(positionManager.isDirty()).isFalse();
+
+      PositionManager rebuilt = new PositionManager();
+      rebuilt.invalidate(provider);
+      for (int s = 0; s < collapsed.size(); s++) {
+        if (collapsed.get(s)) {
+          rebuilt.collapseSection(s);
+        }
+      }
+      int itemCount = rebuilt.invalidate(provider);
+      assertThat(positionManager.itemCount(provider)).isEqualTo(itemCount);
+      for (int s = 0; s < counts.size(); s++) {
+        assertThat(positionManager.sectionHeaderIndex(s)).isEqualTo(rebuilt.sectionHeaderIndex(s));
+        assertThat(positionManager.sectionFooterIndex(s)).isEqualTo(rebuilt.sectionFooterIndex(s));
+      }
+      for (int p = -1; p <= itemCount; p++) {
+        assertThat(positionManager.packedRelativePosition(p))
+            .isEqualTo(rebuilt.packedRelativePosition(p));
+        assertThat(positionManager.isHeader(p)).isEqualTo(rebuilt.isHeader(p));
+        assertThat(positionManager.isFooter(p)).isEqualTo(rebuilt.isFooter(p));
+      }
+    }
+  }
+
   @Test
   public void test_has_invalidated() {
     assertThat(positionManager.hasInvalidated()).isTrue();
   }
 
+  @Test
+  public void test_item_count_is_cached_until_dirty() {
+    final int[] countCalls = new int[1];
+    ItemProvider provider =
+        new ItemProvider() {
+          @Override
+          public int getSectionCount() {
+            return 2;
+          }
+
+          @Override
+          public int getItemCount(int sectionIndex) {
+            countCalls[0]++;
+            return 5;
+          }
+
+          @Override
+          public boolean showHeadersForEmptySections() {
+            return true;
+          }
+
+          @Override
+          public boolean showFooters() {
+            return false;
+          }
+        };
+    positionManager.markDirty();
+    assertThat(positionManager.itemCount(provider)).isEqualTo(12);
+    assertThat(positionManager.itemCount(provider)).isEqualTo(12);
+    assertThat(countCalls[0]).isEqualTo(2);
+
+    positionManager.markDirty();
+    assertThat(positionManager.itemCount(provider)).isEqualTo(12);
+    assertThat(countCalls[0]).isEqualTo(4);
+  }
+
   @Test
   public void test_item_coord_toString() {
     assertThat(new ItemCoord(8, 16).toString()).isEqualTo("8:16");
@@ -0,0 +1,463 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plays back the calls RecyclerView and a linear or grid layout manager make against an adapter
+ * while flinging, expanding or collapsing a section, or jumping to one, and counts them per frame.
+ * Holders are recycled through a pool by view type, so only positions that scroll into view or are
+ * notified as changed get bound, the same as on a device.
+ */
+@SuppressWarnings("deprecation")
+class ScrollSimulator<VH extends SectionedViewHolder> {
+
+  /** The adapter calls made during one frame, and what they cost. */
+  static class FrameStats {
+    int getItemCountCalls;
+    int getItemViewTypeCalls;
+    int getSpanSizeCalls;
+    int getSpanIndexCalls;
+    int createCalls;
+    int bindCalls;
+    int invalidateRuns;
+    long allocatedBytes;
+
+    void add(FrameStats other) {
+      getItemCountCalls += other.getItemCountCalls;
+      getItemViewTypeCalls += other.getItemViewTypeCalls;
+      getSpanSizeCalls += other.getSpanSizeCalls;
+      getSpanIndexCalls += other.getSpanIndexCalls;
+      createCalls += other.createCalls;
+      bindCalls += other.bindCalls;
+      invalidateRuns += other.invalidateRuns;
+      allocatedBytes += other.allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+      return "getItemCount="
+          + getItemCountCalls
+          + ", getItemViewType="
+          + getItemViewTypeCalls
+          + ", getSpanSize="
+          + getSpanSizeCalls
+          + ", getSpanIndex="
+          + getSpanIndexCalls
+          + ", create="
+          + createCalls
+          + ", bind="
+          + bindCalls
+          + ", invalidate="
+          + invalidateRuns
+          + ", allocatedBytes="
+          + allocatedBytes;
+    }
+  }
+
+  private static final Object FULL_BIND = new Object();
+
+  private final SectionedRecyclerViewAdapter<VH> adapter;
+  private final PositionManager positionManager;
+  private final GridLayoutManager.SpanSizeLookup spanSizeLookup;
+  private final int spanCount;
+  private final int visibleRows;
+  private final com.sun.management.ThreadMXBean threadBean;
+  private final Map<Integer, ArrayDeque<VH>> pool;
+  private final List<Object> payloads;
+
+  // The laid out window, double buffered so that layout passes don't allocate.
+  private int visibleCount;
+  private int[] positions;
+  private int[] rows;
+  private int[] spanSizes;
+  private int[] viewTypes;
+  private Object[] holders;
+  private Object[] pendingBinds;
+  private int[] nextPositions;
+  private int[] nextRows;
+  private int[] nextSpanSizes;
+  private int[] nextViewTypes;
+  private Object[] nextHolders;
+  private Object[] nextPendingBinds;
+
+  private int anchorPosition;
+  private int stateItemCount;
+  private FrameStats frame;
+  private int frameInvalidateCount;
+  private long frameAllocatedBytes;
+
+  /** Simulates a LinearLayoutManager showing the given number of rows. */
+  ScrollSimulator(SectionedRecyclerViewAdapter<VH> adapter, int visibleRows) {
+    this(adapter, null, visibleRows);
+  }
+
+  /** Simulates a GridLayoutManager showing the given number of rows. */
+  ScrollSimulator(
+      SectionedRecyclerViewAdapter<VH> adapter, GridLayoutManager layoutManager, int visibleRows) {
+    this.adapter = adapter;
+    this.spanCount = layoutManager != null ? layoutManager.getSpanCount() : 1;
+    this.visibleRows = visibleRows;
+    this.threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    this.pool = new HashMap<>();
+    this.payloads = new ArrayList<>(1);
+    int capacity = visibleRows * spanCount;
+    positions = new int[capacity];
+    rows = new int[capacity];
+    spanSizes = new int[capacity];
+    viewTypes = new int[capacity];
+    holders = new Object[capacity];
+    pendingBinds = new Object[capacity];
+    nextPositions = new int[capacity];
+    nextRows = new int[capacity];
+    nextSpanSizes = new int[capacity];
+    nextViewTypes = new int[capacity];
+    nextHolders = new Object[capacity];
+    nextPendingBinds = new Object[capacity];
+
+    if (layoutManager != null) {
+      adapter.setLayoutManager(layoutManager);
+      spanSizeLookup = layoutManager.getSpanSizeLookup();
+    } else {
+      spanSizeLookup = null;
+    }
+    attachObservers();
+    positionManager = adapter.getPositionManager();
+  }
+
+  /** Does the first layout pass, from the top. */
+  FrameStats layout() {
+    beginFrame();
+    layoutPass(0, true);
+    return endFrame();
+  }
+
+  /** Scrolls down by the given number of rows every frame, stopping at the end of the list. */
+  List<FrameStats> fling(int frameCount, int rowsPerFrame) {
+    List<FrameStats> frames = new ArrayList<>(frameCount);
+    for (int i = 0; i < frameCount; i++) {
+      int anchor = firstPositionOfRow(rowsPerFrame);
+      if (anchor == -1) {
+        break;
+      }
+      beginFrame();
+      layoutPass(anchor, false);
+      frames.add(endFrame());
+    }
+    return frames;
+  }
+
+  /** Taps a section's header, then lays out the changes it notified. */
+  FrameStats toggleSection(int section) {
+    beginFrame();
+    adapter.toggleSectionExpanded(section);
+    layoutPass(firstRemainingPosition(), true);
+    return endFrame();
+  }
+
+  /** Jumps so the section's header is at the top, like scrollToPosition(). */
+  FrameStats scrollToSection(int section) {
+    int headerIndex = adapter.getSectionHeaderIndex(section);
+    beginFrame();
+    layoutPass(headerIndex, true);
+    return endFrame();
+  }
+
+  /** Lays out whatever was notified since the last frame, without scrolling. */
+  FrameStats relayout() {
+    beginFrame();
+    layoutPass(firstRemainingPosition(), true);
+    return endFrame();
+  }
+
+  int firstVisiblePosition() {
+    return visibleCount > 0 ? positions[0] : -1;
+  }
+
+  int visibleCount() {
+    return visibleCount;
+  }
+
+  static FrameStats sum(List<FrameStats> frames) {
+    FrameStats total = new FrameStats();
+    for (FrameStats frame : frames) {
+      total.add(frame);
+    }
+    return total;
+  }
+
+  private void beginFrame() {
+    frame = new FrameStats();
+    frameInvalidateCount = positionManager.invalidateCount();
+    frameAllocatedBytes = allocatedBytes();
+  }
+
+  private FrameStats endFrame() {
+    frame.allocatedBytes = allocatedBytes() - frameAllocatedBytes;
+    frame.invalidateRuns = positionManager.invalidateCount() - frameInvalidateCount;
+    return frame;
+  }
+
+  private long allocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * Lays out rows from the anchor down, the way LinearLayoutManager and GridLayoutManager fill. A
+   * full pass asks for the view type (and span size) of every child, which RecyclerView does to
+   * validate reused holders; a scroll only asks about the positions that came into view.
+   */
+  private void layoutPass(int anchor, boolean fullPass) {
+    if (fullPass) {
+      // Scrolling reuses the count from the last layout pass, like RecyclerView.State.
+      stateItemCount = adapter.getItemCount();
+      frame.getItemCountCalls++;
+    }
+    int itemCount = stateItemCount;
+    anchor = Math.max(0, Math.min(anchor, itemCount - 1));
+    if (spanSizeLookup != null) {
+      // GridLayoutManager moves the anchor back to the start of its row.
+      while (anchor > 0 && spanIndex(anchor) != 0) {
+        anchor--;
+      }
+    }
+
+    int count = 0;
+    int row = 0;
+    int span = 0;
+    for (int position = anchor; position < itemCount; position++) {
+      int slot = findSlot(position);
+      int spanSize = slot != -1 && !fullPass ? spanSizes[slot] : spanSize(position);
+      if (span + spanSize > spanCount) {
+        row++;
+        span = 0;
+      }
+      if (row >= visibleRows) {
+        break;
+      }
+      span += spanSize;
+
+      VH holder;
+      int viewType;
+      Object pendingBind;
+      if (slot != -1) {
+        holder = holder(holders, slot);
+        viewType = viewTypes[slot];
+        pendingBind = pendingBinds[slot];
+        positions[slot] = -1;
+        if (fullPass && viewType != viewType(position)) {
+          recycle(holder, viewType);
+          viewType = viewType(position);
+          holder = obtain(viewType);
+          pendingBind = FULL_BIND;
+        }
+      } else {
+        viewType = viewType(position);
+        holder = obtain(viewType);
+        pendingBind = FULL_BIND;
+      }
+      if (pendingBind != null) {
+        bind(holder, position, pendingBind);
+      }
+
+      nextPositions[count] = position;
+      nextRows[count] = row;
+      nextSpanSizes[count] = spanSize;
+      nextViewTypes[count] = viewType;
+      nextHolders[count] = holder;
+      nextPendingBinds[count] = null;
+      count++;
+    }
+
+    // Whatever wasn't laid out again scrolled out of view.
+    for (int slot = 0; slot < visibleCount; slot++) {
+      if (positions[slot] != -1) {
+        recycle(holder(holders, slot), viewTypes[slot]);
+      }
+      holders[slot] = null;
+    }
+    swapBuffers(count);
+    anchorPosition = count > 0 ? positions[0] : anchor;
+  }
+
+  private int firstPositionOfRow(int row) {
+    for (int slot = 0; slot < visibleCount; slot++) {
+      if (rows[slot] >= row) {
+        return positions[slot];
+      }
+    }
+    return -1;
+  }
+
+  private int firstRemainingPosition() {
+    for (int slot = 0; slot < visibleCount; slot++) {
+      if (positions[slot] != -1) {
+        return positions[slot];
+      }
+    }
+    return anchorPosition;
+  }
+
+  private int findSlot(int position) {
+    for (int slot = 0; slot < visibleCount; slot++) {
+      if (positions[slot] == position) {
+        return slot;
+      }
+    }
+    return -1;
+  }
+
+  private int spanSize(int position) {
+    if (spanSizeLookup == null) {
+      return 1;
+    }
+    frame.getSpanSizeCalls++;
+    return spanSizeLookup.getSpanSize(position);
+  }
+
+  private int spanIndex(int position) {
+    frame.getSpanIndexCalls++;
+    return spanSizeLookup.getSpanIndex(position, spanCount);
+  }
+
+  private int viewType(int position) {
+    frame.getItemViewTypeCalls++;
+    return adapter.getItemViewType(position);
+  }
+
+  private VH obtain(int viewType) {
+    ArrayDeque<VH> holders = pool.get(viewType);
+    VH holder = holders != null ? holders.poll() : null;
+    if (holder == null) {
+      frame.createCalls++;
+      holder = adapter.onCreateViewHolder(null, viewType);
+    }
+    return holder;
+  }
+
+  private void recycle(VH holder, int viewType) {
+    ArrayDeque<VH> holders = pool.get(viewType);
+    if (holders == null) {
+      holders = new ArrayDeque<>();
+      pool.put(viewType, holders);
+    }
+    holders.add(holder);
+  }
+
+  private void bind(VH holder, int position, Object pendingBind) {
+    frame.bindCalls++;
+    payloads.clear();
+    if (pendingBind != FULL_BIND) {
+      payloads.add(pendingBind);
+    }
+    adapter.onBindViewHolder(holder, position, payloads);
+  }
+
+  private void swapBuffers(int count) {
+    int[] swapInts = positions;
+    positions = nextPositions;
+    nextPositions = swapInts;
+    swapInts = rows;
+    rows = nextRows;
+    nextRows = swapInts;
+    swapInts = spanSizes;
+    spanSizes = nextSpanSizes;
+    nextSpanSizes = swapInts;
+    swapInts = viewTypes;
+    viewTypes = nextViewTypes;
+    nextViewTypes = swapInts;
+    Object[] swapObjects = holders;
+    holders = nextHolders;
+    nextHolders = swapObjects;
+    swapObjects = pendingBinds;
+    pendingBinds = nextPendingBinds;
+    nextPendingBinds = swapObjects;
+    visibleCount = count;
+  }
+
+  @SuppressWarnings("unchecked")
+  private VH holder(Object[] holders, int slot) {
+    return (VH) holders[slot];
+  }
+
+  /** Registers the adapter's own observer and the simulator's, like RecyclerView.setAdapter(). */
+  private void attachObservers() {
+    Adapters.attach(adapter);
+    adapter.registerAdapterDataObserver(new WindowObserver());
+  }
+
+  /** Shifts and invalidates the laid out window as notifications arrive, like RecyclerView does. */
+  private class WindowObserver extends RecyclerView.AdapterDataObserver {
+
+    @Override
+    public void onChanged() {
+      for (int slot = 0; slot < visibleCount; slot++) {
+        pendingBinds[slot] = FULL_BIND;
+      }
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount) {
+      onItemRangeChanged(positionStart, itemCount, null);
+    }
+
+    @Override
+    public void onItemRangeChanged(int positionStart, int itemCount, Object payload) {
+      for (int slot = 0; slot < visibleCount; slot++) {
+        int position = positions[slot];
+        if (position >= positionStart && position < positionStart + itemCount) {
+          Object pending = pendingBinds[slot];
+          if (payload == null || (pending != null && pending != payload)) {
+            // Keeps a single payload; anything more is treated as a full bind.
+            pendingBinds[slot] = FULL_BIND;
+          } else {
+            pendingBinds[slot] = payload;
+          }
+        }
+      }
+    }
+
+    @Override
+    public void onItemRangeInserted(int positionStart, int itemCount) {
+      for (int slot = 0; slot < visibleCount; slot++) {
+        if (positions[slot] >= positionStart) {
+          positions[slot] += itemCount;
+        }
+      }
+    }
+
+    @Override
+    public void onItemRangeRemoved(int positionStart, int itemCount) {
+      for (int slot = 0; slot < visibleCount; slot++) {
+        int position = positions[slot];
+        if (position >= positionStart + itemCount) {
+          positions[slot] -= itemCount;
+        } else if (position >= positionStart) {
+          recycle(holder(holders, slot), viewTypes[slot]);
+          positions[slot] = -1;
+          holders[slot] = null;
+        }
+      }
+    }
+
+    @Override
+    public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+      for (int slot = 0; slot < visibleCount; slot++) {
+        int position = positions[slot];
+        if (position == fromPosition) {
+          positions[slot] = toPosition;
+        } else if (fromPosition < toPosition && position > fromPosition && position <= toPosition) {
+          positions[slot]--;
+        } else if (fromPosition > toPosition && position >= toPosition && position < fromPosition) {
+          positions[slot]++;
+        }
+      }
+    }
+  }
+}
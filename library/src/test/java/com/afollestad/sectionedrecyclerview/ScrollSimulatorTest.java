@@ -0,0 +1,168 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.view.View;
+import android.view.ViewGroup;
+import com.afollestad.sectionedrecyclerview.ScrollSimulator.FrameStats;
+import java.util.List;
+import org.junit.Test;
+
+/** Puts budgets on the adapter work each frame does, measured with {@link ScrollSimulator}. */
+public class ScrollSimulatorTest {
+
+  private static final int SECTION_COUNT = 1000;
+  private static final int ITEMS_PER_SECTION = 20;
+  private static final int VISIBLE_ROWS = 12;
+
+  /** Allows for class loading and the odd pool resize, but not a per-bind allocation. */
+  private static final long ALLOCATION_BUDGET_PER_FRAME = 256;
+
+  @Test
+  public void test_linear_fling_only_binds_new_rows() {
+    TestAdapter adapter = new TestAdapter();
+    ScrollSimulator<TestAdapter.Holder> simulator = new ScrollSimulator<>(adapter, VISIBLE_ROWS);
+
+    FrameStats first = simulator.layout();
+    assertThat(first.getItemCountCalls).isEqualTo(1);
+    assertThat(first.bindCalls).isEqualTo(VISIBLE_ROWS);
+    // The layout was already indexed when the simulator attached to the adapter.
+    assertThat(first.invalidateRuns).isEqualTo(0);
+
+    List<FrameStats> frames = simulator.fling(200, 3);
+    assertThat(frames).hasSize(200);
+    for (FrameStats frame : frames) {
+      assertThat(frame.getItemCountCalls).isEqualTo(0);
+      assertThat(frame.getItemViewTypeCalls).isEqualTo(3);
+      assertThat(frame.bindCalls).isEqualTo(3);
+      assertThat(frame.invalidateRuns).isEqualTo(0);
+    }
+    FrameStats total = ScrollSimulator.sum(frames.subList(100, 200));
+    assertThat(total.createCalls).isEqualTo(0);
+    assertThat(total.allocatedBytes).isAtMost(100 * ALLOCATION_BUDGET_PER_FRAME);
+  }
+
+  @Test
+  public void test_grid_fling_sizes_only_new_items() {
+    TestAdapter adapter = new TestAdapter();
+    GridLayoutManager layoutManager = new GridLayoutManager(null, 4);
+    ScrollSimulator<TestAdapter.Holder> simulator =
+        new ScrollSimulator<>(adapter, layoutManager, VISIBLE_ROWS);
+    simulator.layout();
+
+    List<FrameStats> frames = simulator.fling(200, 2);
+    for (FrameStats frame : frames) {
+      assertThat(frame.getItemCountCalls).isEqualTo(0);
+      // Like GridLayoutManager, the item that doesn't fit in the last row is sized too.
+      assertThat(frame.getSpanSizeCalls).isAtMost(frame.bindCalls + 1);
+      assertThat(frame.getItemViewTypeCalls).isEqualTo(frame.bindCalls);
+      assertThat(frame.invalidateRuns).isEqualTo(0);
+    }
+    FrameStats total = ScrollSimulator.sum(frames.subList(100, 200));
+    assertThat(total.bindCalls).isGreaterThan(0);
+    assertThat(total.allocatedBytes).isAtMost(100 * ALLOCATION_BUDGET_PER_FRAME);
+  }
+
+  @Test
+  public void test_collapse_rebinds_header_with_payload() {
+    TestAdapter adapter = new TestAdapter();
+    ScrollSimulator<TestAdapter.Holder> simulator = new ScrollSimulator<>(adapter, VISIBLE_ROWS);
+    simulator.layout();
+
+    FrameStats collapse = simulator.toggleSection(0);
+    assertThat(collapse.invalidateRuns).isEqualTo(0);
+    assertThat(collapse.getItemCountCalls).isEqualTo(1);
+    assertThat(adapter.expandedPayloadBinds).isEqualTo(1);
+    // The header rebinds with its payload, and the next section's rows scroll into view.
+    assertThat(collapse.bindCalls).isEqualTo(VISIBLE_ROWS);
+    assertThat(adapter.fullHeaderBinds).isEqualTo(2);
+
+    FrameStats expand = simulator.toggleSection(0);
+    assertThat(expand.invalidateRuns).isEqualTo(0);
+    assertThat(adapter.expandedPayloadBinds).isEqualTo(2);
+  }
+
+  @Test
+  public void test_jump_to_section_binds_one_screen() {
+    TestAdapter adapter = new TestAdapter();
+    ScrollSimulator<TestAdapter.Holder> simulator = new ScrollSimulator<>(adapter, VISIBLE_ROWS);
+    simulator.layout();
+
+    FrameStats jump = simulator.scrollToSection(SECTION_COUNT / 2);
+    assertThat(simulator.firstVisiblePosition())
+        .isEqualTo(adapter.getSectionHeaderIndex(SECTION_COUNT / 2));
+    assertThat(jump.getItemCountCalls).isEqualTo(1);
+    assertThat(jump.bindCalls).isEqualTo(VISIBLE_ROWS);
+    assertThat(jump.invalidateRuns).isEqualTo(0);
+  }
+
+  @Test
+  public void test_data_set_changed_invalidates_once() {
+    TestAdapter adapter = new TestAdapter();
+    ScrollSimulator<TestAdapter.Holder> simulator = new ScrollSimulator<>(adapter, VISIBLE_ROWS);
+    simulator.layout();
+
+    adapter.notifyDataSetChanged();
+    FrameStats frame = simulator.relayout();
+    assertThat(frame.invalidateRuns).isEqualTo(1);
+    assertThat(frame.bindCalls).isEqualTo(VISIBLE_ROWS);
+  }
+
+  static class TestAdapter extends SectionedRecyclerViewAdapter<TestAdapter.Holder> {
+
+    int fullHeaderBinds;
+    int expandedPayloadBinds;
+
+    @Override
+    public int getSectionCount() {
+      return SECTION_COUNT;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      return ITEMS_PER_SECTION;
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(Holder holder, int section, boolean expanded) {
+      fullHeaderBinds++;
+      holder.boundSection = section;
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(
+        Holder holder, int section, boolean expanded, List<Object> payloads) {
+      if (payloads.contains(SectionPayload.EXPANDED_STATE_CHANGED)) {
+        expandedPayloadBinds++;
+        return;
+      }
+      super.onBindHeaderViewHolder(holder, section, expanded, payloads);
+    }
+
+    @Override
+    public void onBindFooterViewHolder(Holder holder, int section) {
+      holder.boundSection = section;
+    }
+
+    @Override
+    public void onBindViewHolder(
+        Holder holder, int section, int relativePosition, int absolutePosition) {
+      holder.boundSection = section;
+    }
+
+    @Override
+    public Holder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new Holder(new TestView());
+    }
+
+    static class Holder extends SectionedViewHolder {
+
+      int boundSection;
+
+      Holder(View itemView) {
+        super(itemView);
+      }
+    }
+  }
+}
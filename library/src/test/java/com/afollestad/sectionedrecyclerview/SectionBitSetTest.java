@@ -0,0 +1,121 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionBitSetTest {
+
+  private SectionBitSet bits;
+
+  @Before
+  public void before() {
+    bits = new SectionBitSet();
+  }
+
+  @Test
+  public void test_set_get_clear() {
+    assertThat(bits.get(5)).isFalse();
+    bits.set(5);
+    bits.set(130);
+    assertThat(bits.get(5)).isTrue();
+    assertThat(bits.get(130)).isTrue();
+    assertThat(bits.get(129)).isFalse();
+    assertThat(bits.length()).isEqualTo(131);
+    bits.clear(130);
+    assertThat(bits.get(130)).isFalse();
+    assertThat(bits.length()).isEqualTo(6);
+    bits.clear(1000);
+    assertThat(bits.get(1000)).isFalse();
+  }
+
+  @Test
+  public void test_set_range_and_clear_all() {
+    bits.set(3, 200);
+    assertThat(bits.get(2)).isFalse();
+    assertThat(bits.get(3)).isTrue();
+    assertThat(bits.get(64)).isTrue();
+    assertThat(bits.get(199)).isTrue();
+    assertThat(bits.get(200)).isFalse();
+    bits.clear();
+    assertThat(bits.length()).isEqualTo(0);
+  }
+
+  @Test
+  public void test_insert_shifts_bits_up() {
+    bits.set(0);
+    bits.set(2);
+    bits.set(63);
+    bits.insert(1, 70);
+    assertThat(bits.get(0)).isTrue();
+    assertThat(bits.get(1)).isFalse();
+    assertThat(bits.get(2)).isFalse();
+    assertThat(bits.get(72)).isTrue();
+    assertThat(bits.get(133)).isTrue();
+    assertThat(bits.length()).isEqualTo(134);
+  }
+
+  @Test
+  public void test_remove_shifts_bits_down() {
+    bits.set(0);
+    bits.set(5);
+    bits.set(72);
+    bits.set(133);
+    bits.remove(1, 70);
+    assertThat(bits.get(0)).isTrue();
+    assertThat(bits.get(2)).isTrue();
+    assertThat(bits.get(63)).isTrue();
+    assertThat(bits.length()).isEqualTo(64);
+  }
+
+  @Test
+  public void test_move() {
+    bits.set(1);
+    bits.move(1, 4);
+    assertThat(bits.get(1)).isFalse();
+    assertThat(bits.get(4)).isTrue();
+    bits.set(2);
+    bits.move(4, 0);
+    assertThat(bits.get(0)).isTrue();
+    assertThat(bits.get(3)).isTrue();
+    assertThat(bits.length()).isEqualTo(4);
+  }
+
+  @Test
+  public void test_shifts_match_reference() {
+    Random random = new Random(42);
+    BitSet expected = new BitSet();
+    for (int i = 0; i < 500; i++) {
+      int index = random.nextInt(300);
+      int count = random.nextInt(150);
+      if (random.nextBoolean()) {
+        expected.set(index);
+        bits.set(index);
+      }
+      if (random.nextBoolean()) {
+        BitSet shifted = expected.get(0, index);
+        BitSet tail = expected.get(index, Math.max(index, expected.length()));
+        for (int b = tail.nextSetBit(0); b >= 0; b = tail.nextSetBit(b + 1)) {
+          shifted.set(index + count + b);
+        }
+        expected = shifted;
+        bits.insert(index, count);
+      } else {
+        BitSet shifted = expected.get(0, index);
+        BitSet tail = expected.get(index + count, Math.max(index + count, expected.length()));
+        for (int b = tail.nextSetBit(0); b >= 0; b = tail.nextSetBit(b + 1)) {
+          shifted.set(index + b);
+        }
+        expected = shifted;
+        bits.remove(index, count);
+      }
+      assertThat(bits.length()).isEqualTo(expected.length());
+      for (int b = 0; b < expected.length(); b++) {
+        assertThat(bits.get(b)).isEqualTo(expected.get(b));
+      }
+    }
+  }
+}
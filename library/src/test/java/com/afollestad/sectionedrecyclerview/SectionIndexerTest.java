@@ -0,0 +1,104 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionIndexerTest {
+
+  private LabeledAdapter adapter;
+
+  @Before
+  public void before() {
+    adapter = new LabeledAdapter();
+  }
+
+  @Test
+  public void test_sections_are_labels() {
+    assertThat(adapter.getSections()).asList().containsExactly("A", "B", "C", "D").inOrder();
+  }
+
+  @Test
+  public void test_position_for_section() {
+    // A: 0-3, B is hidden, C: 4-6, D: 7-8
+    assertThat(adapter.getPositionForSection(0)).isEqualTo(0);
+    assertThat(adapter.getPositionForSection(1)).isEqualTo(4);
+    assertThat(adapter.getPositionForSection(2)).isEqualTo(4);
+    assertThat(adapter.getPositionForSection(3)).isEqualTo(7);
+  }
+
+  @Test
+  public void test_position_for_section_is_clipped() {
+    assertThat(adapter.getPositionForSection(-1)).isEqualTo(0);
+    assertThat(adapter.getPositionForSection(10)).isEqualTo(7);
+  }
+
+  @Test
+  public void test_section_for_position() {
+    assertThat(adapter.getSectionForPosition(0)).isEqualTo(0);
+    assertThat(adapter.getSectionForPosition(3)).isEqualTo(0);
+    assertThat(adapter.getSectionForPosition(4)).isEqualTo(2);
+    assertThat(adapter.getSectionForPosition(6)).isEqualTo(2);
+    assertThat(adapter.getSectionForPosition(8)).isEqualTo(3);
+  }
+
+  @Test
+  public void test_section_for_position_is_clipped() {
+    assertThat(adapter.getSectionForPosition(-5)).isEqualTo(0);
+    assertThat(adapter.getSectionForPosition(100)).isEqualTo(3);
+  }
+
+  @Test
+  public void test_lookups_do_not_query_item_counts() {
+    Adapters.attach(adapter);
+    int queries = adapter.itemCountQueries;
+    for (int position = 0; position < adapter.getItemCount(); position++) {
+      adapter.getSectionForPosition(position);
+    }
+    for (int section = 0; section < adapter.getSectionCount(); section++) {
+      adapter.getPositionForSection(section);
+    }
+    assertThat(adapter.itemCountQueries).isEqualTo(queries);
+  }
+
+  static class LabeledAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    private static final int[] ITEM_COUNTS = {3, 0, 2, 1};
+    private static final String[] LABELS = {"A", "B", "C", "D"};
+
+    int itemCountQueries;
+
+    @Override
+    public int getSectionCount() {
+      return ITEM_COUNTS.length;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      itemCountQueries++;
+      return ITEM_COUNTS[section];
+    }
+
+    @Override
+    public String getSectionLabel(int section) {
+      return LABELS[section];
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new TestView()) {};
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import org.junit.Before;
+import org.junit.Test;
+
+@SuppressWarnings("deprecation")
+public class SectionItemViewTypeTest {
+
+  private TypedAdapter adapter;
+
+  @Before
+  public void before() {
+    adapter = Adapters.attach(new TypedAdapter(new int[] {2, 3, 1}));
+    adapter.sectionQueries = 0;
+    adapter.itemQueries = 0;
+  }
+
+  @Test
+  public void test_uniform_sections_are_asked_once() {
+    // Header 0, items 1-2, header 3, items 4-6, header 7, item 8
+    assertThat(adapter.getItemViewType(1)).isEqualTo(10);
+    assertThat(adapter.getItemViewType(2)).isEqualTo(10);
+    assertThat(adapter.getItemViewType(5)).isEqualTo(11);
+    assertThat(adapter.getItemViewType(4)).isEqualTo(11);
+    assertThat(adapter.sectionQueries).isEqualTo(2);
+    assertThat(adapter.itemQueries).isEqualTo(0);
+  }
+
+  @Test
+  public void test_mixed_section_falls_back_to_items() {
+    assertThat(adapter.getItemViewType(8)).isEqualTo(1);
+    assertThat(adapter.getItemViewType(8)).isEqualTo(1);
+    assertThat(adapter.sectionQueries).isEqualTo(1);
+    assertThat(adapter.itemQueries).isEqualTo(2);
+  }
+
+  @Test
+  public void test_headers_are_not_looked_up() {
+    assertThat(adapter.getItemViewType(3)).isEqualTo(SectionedRecyclerViewAdapter.VIEW_TYPE_HEADER);
+    assertThat(adapter.sectionQueries).isEqualTo(0);
+  }
+
+  @Test
+  public void test_notify_clears_table() {
+    adapter.getItemViewType(1);
+    adapter.uniformTypeOffset = 20;
+    adapter.notifySectionChanged(0);
+    assertThat(adapter.getItemViewType(1)).isEqualTo(20);
+    assertThat(adapter.sectionQueries).isEqualTo(2);
+  }
+
+  @Test
+  public void test_table_follows_inserted_section() {
+    adapter.getItemViewType(4);
+    adapter.itemCounts = new int[] {2, 4, 3, 1};
+    adapter.notifySectionInserted(1);
+    // Header 3, items 4-7 belong to the new section 1.
+    assertThat(adapter.getItemViewType(4)).isEqualTo(11);
+    assertThat(adapter.getItemViewType(9)).isEqualTo(12);
+  }
+
+  static class TypedAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    int[] itemCounts;
+    int uniformTypeOffset = 10;
+    int sectionQueries;
+    int itemQueries;
+
+    TypedAdapter(int[] itemCounts) {
+      this.itemCounts = itemCounts;
+    }
+
+    @Override
+    public int getSectionCount() {
+      return itemCounts.length;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      return itemCounts[section];
+    }
+
+    /** The last section mixes types, every other one is uniform. */
+    @Override
+    public int getSectionItemViewType(int section) {
+      sectionQueries++;
+      return section == getSectionCount() - 1 ? VIEW_TYPE_MIXED : uniformTypeOffset + section;
+    }
+
+    @Override
+    public int getItemViewType(int section, int relativePosition, int absolutePosition) {
+      itemQueries++;
+      return relativePosition % 2 + 1;
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new TestView()) {};
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionLayoutSnapshotTest {
+
+  private static final int INSERT = SectionLayoutSnapshot.UPDATE_INSERT;
+  private static final int REMOVE = SectionLayoutSnapshot.UPDATE_REMOVE;
+
+  private int[] itemCounts;
+  private boolean showFooters;
+  private PositionManager positionManager;
+  private ItemProvider provider;
+
+  @Before
+  public void before() {
+    itemCounts = new int[] {3, 0, 2};
+    positionManager = new PositionManager();
+    provider =
+        new ItemProvider() {
+          @Override
+          public int getSectionCount() {
+            return itemCounts.length;
+          }
+
+          @Override
+          public int getItemCount(int sectionIndex) {
+            return itemCounts[sectionIndex];
+          }
+
+          @Override
+          public boolean showHeadersForEmptySections() {
+            return false;
+          }
+
+          @Override
+          public boolean showFooters() {
+            return showFooters;
+          }
+        };
+    positionManager.invalidate(provider);
+  }
+
+  @Test
+  public void test_build() {
+    SectionLayoutSnapshot snapshot =
+        positionManager.newSnapshotBuilder(provider).build(new int[] {1, 2, 0});
+    assertThat(snapshot.getSectionCount()).isEqualTo(3);
+    assertThat(snapshot.getItemCount()).isEqualTo(5);
+    assertThat(snapshot.getSectionStart(1)).isEqualTo(2);
+    assertThat(snapshot.getSectionSize(1)).isEqualTo(3);
+    assertThat(snapshot.getSectionSize(2)).isEqualTo(0);
+  }
+
+  @Test
+  public void test_apply_matches_invalidate() {
+    SectionLayoutSnapshot.Builder builder = positionManager.newSnapshotBuilder(provider);
+    int invalidateCount = positionManager.invalidateCount();
+    itemCounts = new int[] {1, 4, 2};
+    assertThat(positionManager.applySnapshot(builder.build(itemCounts), provider)).isTrue();
+    assertThat(positionManager.invalidateCount()).isEqualTo(invalidateCount);
+
+    PositionManager expected = new PositionManager();
+    expected.invalidate(provider);
+    assertSameLayout(positionManager, expected);
+  }
+
+  @Test
+  public void test_updates_from_base_layout() {
+    // Header 0, items 1-3, header 4, items 5-6
+    SectionLayoutSnapshot snapshot =
+        positionManager.newSnapshotBuilder(provider).build(new int[] {1, 2, 4});
+    // Back to front: two items added to the end of section 2, section 1 appears, two items
+    // dropped from section 0.
+    assertThat(Arrays.copyOf(snapshot.updates, snapshot.updateCount))
+        .isEqualTo(new int[] {INSERT, 7, 2, INSERT, 4, 3, REMOVE, 2, 2});
+  }
+
+  @Test
+  public void test_no_updates_without_base_layout() {
+    PositionManager unindexed = new PositionManager();
+    SectionLayoutSnapshot snapshot = unindexed.newSnapshotBuilder(provider).build(itemCounts);
+    assertThat(snapshot.updates).isNull();
+    assertThat(unindexed.applySnapshot(snapshot, provider)).isTrue();
+    assertThat(unindexed.itemCount(provider)).isEqualTo(7);
+  }
+
+  @Test
+  public void test_stale_after_collapse() {
+    SectionLayoutSnapshot.Builder builder = positionManager.newSnapshotBuilder(provider);
+    positionManager.collapseSection(0);
+    itemCounts = new int[] {5, 1, 2};
+    assertThat(positionManager.applySnapshot(builder.build(itemCounts), provider)).isFalse();
+    // Section 0 stays collapsed: header 0, header 1, item 2, header 3, items 4-5
+    assertThat(positionManager.itemCount(provider)).isEqualTo(6);
+    assertThat(positionManager.sectionStart(2)).isEqualTo(3);
+  }
+
+  @Test
+  public void test_stale_after_settings_change() {
+    SectionLayoutSnapshot.Builder builder = positionManager.newSnapshotBuilder(provider);
+    showFooters = true;
+    assertThat(positionManager.applySnapshot(builder.build(itemCounts), provider)).isFalse();
+    assertThat(positionManager.itemCount(provider)).isEqualTo(9);
+  }
+
+  @Test
+  public void test_snapshot_is_not_changed_by_later_updates() {
+    SectionLayoutSnapshot snapshot =
+        positionManager.newSnapshotBuilder(provider).build(new int[] {3, 1, 2});
+    positionManager.applySnapshot(snapshot, provider);
+    positionManager.updateSectionItemCount(0, 10);
+    positionManager.collapseSection(2);
+    assertThat(positionManager.itemCount(provider)).isEqualTo(14);
+    assertThat(snapshot.getItemCount()).isEqualTo(9);
+    assertThat(snapshot.getItemCount(0)).isEqualTo(3);
+    assertThat(snapshot.getSectionStart(2)).isEqualTo(6);
+    assertThat(snapshot.isSectionExpanded(2)).isTrue();
+  }
+
+  @Test
+  public void test_base_layout_is_not_changed_by_later_updates() {
+    SectionLayoutSnapshot.Builder builder = positionManager.newSnapshotBuilder(provider);
+    positionManager.updateSectionItemCount(0, 10);
+    SectionLayoutSnapshot snapshot = builder.build(new int[] {4, 0, 2});
+    assertThat(Arrays.copyOf(snapshot.updates, snapshot.updateCount))
+        .isEqualTo(new int[] {INSERT, 4, 1});
+  }
+
+  private static void assertSameLayout(PositionManager actual, PositionManager expected) {
+    assertThat(actual.sectionCount()).isEqualTo(expected.sectionCount());
+    for (int s = 0; s < expected.sectionCount(); s++) {
+      assertThat(actual.sectionStart(s)).isEqualTo(expected.sectionStart(s));
+      assertThat(actual.sectionSize(s)).isEqualTo(expected.sectionSize(s));
+    }
+    for (int p = 0; p < 10; p++) {
+      assertThat(actual.packedRelativePosition(p)).isEqualTo(expected.packedRelativePosition(p));
+    }
+  }
+}
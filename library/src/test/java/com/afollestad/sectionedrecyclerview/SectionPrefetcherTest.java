@@ -0,0 +1,125 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionPrefetcherTest {
+
+  private TypedAdapter adapter;
+  private CountingPool pool;
+  private SectionPrefetcher prefetcher;
+
+  @Before
+  public void before() {
+    // Header 0, items 1-3, footer 4, header 5, items 6-7, footer 8, header 9, item 10, footer 11,
+    // header 12, items 13-14, footer 15
+    adapter = Adapters.attach(new TypedAdapter(new int[] {3, 2, 1, 2}));
+    adapter.shouldShowFooters(true);
+    pool = new CountingPool();
+    prefetcher = new SectionPrefetcher(adapter, 1);
+  }
+
+  @Test
+  public void test_creates_missing_types_one_per_pass() {
+    assertThat(prefetcher.lookAheadFrom(2, 1)).isTrue();
+    // Sections 0 and 1: header, items 10 and 11, footer.
+    assertThat(prefetcher.createNextViewType(pool, null)).isTrue();
+    assertThat(prefetcher.createNextViewType(pool, null)).isTrue();
+    assertThat(prefetcher.createNextViewType(pool, null)).isTrue();
+    assertThat(prefetcher.createNextViewType(pool, null)).isTrue();
+    assertThat(prefetcher.createNextViewType(pool, null)).isFalse();
+    assertThat(adapter.createdTypes)
+        .containsExactly(
+            SectionedRecyclerViewAdapter.VIEW_TYPE_HEADER,
+            10,
+            SectionedRecyclerViewAdapter.VIEW_TYPE_FOOTER,
+            11)
+        .inOrder();
+  }
+
+  @Test
+  public void test_pooled_types_are_skipped() {
+    pool.putRecycledView(
+        adapter.createViewHolder(null, SectionedRecyclerViewAdapter.VIEW_TYPE_HEADER));
+    pool.putRecycledView(adapter.createViewHolder(null, 10));
+    adapter.createdTypes.clear();
+
+    prefetcher.lookAheadFrom(2, 1);
+    while (prefetcher.createNextViewType(pool, null)) {}
+    assertThat(adapter.createdTypes)
+        .containsExactly(SectionedRecyclerViewAdapter.VIEW_TYPE_FOOTER, 11)
+        .inOrder();
+  }
+
+  @Test
+  public void test_same_section_is_not_looked_at_again() {
+    assertThat(prefetcher.lookAheadFrom(1, 1)).isTrue();
+    assertThat(prefetcher.lookAheadFrom(3, 1)).isFalse();
+    assertThat(prefetcher.lookAheadFrom(6, 1)).isTrue();
+    assertThat(prefetcher.lookAheadFrom(6, -1)).isTrue();
+  }
+
+  @Test
+  public void test_scrolling_back_looks_at_earlier_sections() {
+    prefetcher.lookAheadFrom(10, -1);
+    while (prefetcher.createNextViewType(pool, null)) {}
+    // Sections 2 and 1.
+    assertThat(adapter.createdTypes)
+        .containsExactly(
+            SectionedRecyclerViewAdapter.VIEW_TYPE_HEADER,
+            12,
+            SectionedRecyclerViewAdapter.VIEW_TYPE_FOOTER,
+            11)
+        .inOrder();
+  }
+
+  static class TypedAdapter extends ItemCountCacheTest.CountingAdapter {
+
+    final List<Integer> createdTypes = new ArrayList<>();
+
+    TypedAdapter(int[] itemCounts) {
+      super(itemCounts);
+    }
+
+    @Override
+    public int getSectionItemViewType(int section) {
+      return 10 + section;
+    }
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      createdTypes.add(viewType);
+      return super.onCreateViewHolder(parent, viewType);
+    }
+  }
+
+  static class CountingPool extends RecyclerView.RecycledViewPool {
+
+    private final Map<Integer, ArrayDeque<RecyclerView.ViewHolder>> scrap = new HashMap<>();
+
+    @Override
+    public RecyclerView.ViewHolder getRecycledView(int viewType) {
+      ArrayDeque<RecyclerView.ViewHolder> holders = scrap.get(viewType);
+      return holders != null ? holders.poll() : null;
+    }
+
+    @Override
+    public void putRecycledView(RecyclerView.ViewHolder holder) {
+      ArrayDeque<RecyclerView.ViewHolder> holders = scrap.get(holder.getItemViewType());
+      if (holders == null) {
+        holders = new ArrayDeque<>();
+        scrap.put(holder.getItemViewType(), holders);
+      }
+      holders.add(holder);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+import static junit.framework.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionTreeTest {
+
+  /** Category, subcategory, items. */
+  private int[][] itemCounts;
+
+  private SectionTree sectionTree;
+  private NestedItemProvider provider;
+
+  @Before
+  public void before() {
+    itemCounts = new int[][] {{2, 1}, {}, {3}};
+    sectionTree = new SectionTree();
+    provider =
+        new NestedItemProvider() {
+          @Override
+          public int getLevelCount() {
+            return 2;
+          }
+
+          @Override
+          public int getChildCount(int[] path, int depth) {
+            if (depth == 0) {
+              return itemCounts.length;
+            } else if (depth == 1) {
+              return itemCounts[path[0]].length;
+            }
+            return itemCounts[path[0]][path[1]];
+          }
+        };
+    sectionTree.invalidate(provider);
+  }
+
+  @Test
+  public void test_item_count() {
+    // A, A0, 2 items, A1, 1 item, B, C, C0, 3 items
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(12);
+  }
+
+  @Test
+  public void test_locate() {
+    int[] path = new int[2];
+    assertThat(sectionTree.locate(0, path)).isEqualTo(ItemCoord.pack(1, -1));
+    assertThat(path[0]).isEqualTo(0);
+
+    assertThat(sectionTree.locate(4, path)).isEqualTo(ItemCoord.pack(2, -1));
+    assertThat(path).asList().containsExactly(0, 1).inOrder();
+
+    assertThat(sectionTree.locate(5, path)).isEqualTo(ItemCoord.pack(2, 0));
+    assertThat(path).asList().containsExactly(0, 1).inOrder();
+
+    assertThat(sectionTree.locate(6, path)).isEqualTo(ItemCoord.pack(1, -1));
+    assertThat(path[0]).isEqualTo(1);
+
+    assertThat(sectionTree.locate(11, path)).isEqualTo(ItemCoord.pack(2, 2));
+    assertThat(path).asList().containsExactly(2, 0).inOrder();
+  }
+
+  @Test
+  public void test_locate_out_of_range() {
+    int[] path = new int[2];
+    assertThat(sectionTree.locate(-1, path)).isEqualTo(ItemCoord.pack(-1, -1));
+    assertThat(sectionTree.locate(12, path)).isEqualTo(ItemCoord.pack(-1, -1));
+  }
+
+  @Test
+  public void test_header_position() {
+    assertThat(sectionTree.headerPosition(new int[] {0}, 1)).isEqualTo(0);
+    assertThat(sectionTree.headerPosition(new int[] {0, 1}, 2)).isEqualTo(4);
+    assertThat(sectionTree.headerPosition(new int[] {1}, 1)).isEqualTo(6);
+    assertThat(sectionTree.headerPosition(new int[] {2, 0}, 2)).isEqualTo(8);
+  }
+
+  @Test
+  public void test_collapse_subtree() {
+    sectionTree.setCollapsed(new int[] {0}, 1, true);
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(7);
+    assertThat(sectionTree.headerPosition(new int[] {1}, 1)).isEqualTo(1);
+    assertThat(sectionTree.headerPosition(new int[] {0, 1}, 2)).isEqualTo(-1);
+
+    sectionTree.setCollapsed(new int[] {0}, 1, false);
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(12);
+    assertThat(sectionTree.headerPosition(new int[] {0, 1}, 2)).isEqualTo(4);
+  }
+
+  @Test
+  public void test_collapse_under_collapsed_ancestor() {
+    sectionTree.setCollapsed(new int[] {0}, 1, true);
+    sectionTree.setCollapsed(new int[] {0, 0}, 2, true);
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(7);
+
+    sectionTree.setCollapsed(new int[] {0}, 1, false);
+    // A, A0 (collapsed), A1, 1 item, B, C, C0, 3 items
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(10);
+  }
+
+  @Test
+  public void test_collapsed_state_survives_invalidate() {
+    sectionTree.setCollapsed(new int[] {2, 0}, 2, true);
+    sectionTree.markDirty();
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(9);
+    assertThat(sectionTree.isCollapsed(new int[] {2, 0}, 2)).isTrue();
+  }
+
+  @Test
+  public void test_update_item_count() {
+    itemCounts[0][1] = 4;
+    sectionTree.updateItemCount(new int[] {0, 1}, 4);
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(15);
+    assertThat(sectionTree.headerPosition(new int[] {1}, 1)).isEqualTo(9);
+  }
+
+  @Test
+  public void test_invalid_path() {
+    try {
+      sectionTree.headerPosition(new int[] {1, 0}, 2);
+      fail("Expected an exception for a section with no children.");
+    } catch (IllegalArgumentException e) {
+      assertThat(e.getMessage()).contains("[1, 0]");
+    }
+  }
+
+  @Test
+  public void test_random_operations_match_flattened_list() {
+    Random random = new Random(11);
+    itemCounts = new int[20][];
+    for (int c = 0; c < itemCounts.length; c++) {
+      itemCounts[c] = new int[random.nextInt(6)];
+      for (int s = 0; s < itemCounts[c].length; s++) {
+        itemCounts[c][s] = random.nextInt(8);
+      }
+    }
+    boolean[] collapsedCategories = new boolean[itemCounts.length];
+    boolean[][] collapsedSubcategories = new boolean[itemCounts.length][6];
+    sectionTree.markDirty();
+    sectionTree.itemCount(provider);
+
+    for (int step = 0; step < 500; step++) {
+      int c = random.nextInt(itemCounts.length);
+      if (itemCounts[c].length == 0 || random.nextBoolean()) {
+        collapsedCategories[c] = !collapsedCategories[c];
+        sectionTree.setCollapsed(new int[] {c}, 1, collapsedCategories[c]);
+      } else {
+        int s = random.nextInt(itemCounts[c].length);
+        if (random.nextBoolean()) {
+          collapsedSubcategories[c][s] = !collapsedSubcategories[c][s];
+          sectionTree.setCollapsed(new int[] {c, s}, 2, collapsedSubcategories[c][s]);
+        } else {
+          itemCounts[c][s] = random.nextInt(8);
+          sectionTree.updateItemCount(new int[] {c, s}, itemCounts[c][s]);
+        }
+      }
+      assertMatches(flatten(collapsedCategories, collapsedSubcategories));
+    }
+  }
+
+  /** Lays the hierarchy out linearly, one packed depth and relative position per position. */
+  private List<long[]> flatten(boolean[] collapsedCategories, boolean[][] collapsedSubcategories) {
+    List<long[]> positions = new ArrayList<>();
+    for (int c = 0; c < itemCounts.length; c++) {
+      positions.add(new long[] {ItemCoord.pack(1, -1), c, 0});
+      if (collapsedCategories[c]) {
+        continue;
+      }
+      for (int s = 0; s < itemCounts[c].length; s++) {
+        positions.add(new long[] {ItemCoord.pack(2, -1), c, s});
+        if (collapsedSubcategories[c][s]) {
+          continue;
+        }
+        for (int i = 0; i < itemCounts[c][s]; i++) {
+          positions.add(new long[] {ItemCoord.pack(2, i), c, s});
+        }
+      }
+    }
+    return positions;
+  }
+
+  private void assertMatches(List<long[]> expected) {
+    assertThat(sectionTree.itemCount(provider)).isEqualTo(expected.size());
+    int[] path = new int[2];
+    for (int position = 0; position < expected.size(); position++) {
+      long[] entry = expected.get(position);
+      long located = sectionTree.locate(position, path);
+      assertThat(located).isEqualTo(entry[0]);
+      int depth = ItemCoord.section(located);
+      assertThat(path[0]).isEqualTo((int) entry[1]);
+      if (depth == 2) {
+        assertThat(path[1]).isEqualTo((int) entry[2]);
+      }
+      if (ItemCoord.relativePos(located) == -1) {
+        assertThat(sectionTree.headerPosition(Arrays.copyOf(path, depth), depth))
+            .isEqualTo(position);
+      }
+    }
+  }
+}
@@ -0,0 +1,226 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionedPagerTest {
+
+  private final List<Runnable> pendingLoads = new ArrayList<>();
+  private final List<String> notifications = new ArrayList<>();
+  /** The items each section really has; section 0 is estimated at 5 items, section 1 at 3. */
+  private final String[][] items = {
+    {"a0", "a1", "a2", "a3", "a4", "a5", "a6"}, {"b0", "b1"},
+  };
+
+  /** The pages whose loads fail, by section and page index. */
+  private final List<String> failingPages = new ArrayList<>();
+
+  private ItemCountCacheTest.CountingAdapter adapter;
+  private Executor directExecutor;
+  private Executor queueExecutor;
+  private SectionedPager<String> pager;
+
+  @Before
+  public void before() {
+    adapter =
+        new ItemCountCacheTest.CountingAdapter(new int[0]) {
+          @Override
+          public int getSectionCount() {
+            return pager.getSectionCount();
+          }
+
+          @Override
+          public int getItemCount(int section) {
+            return pager.getItemCount(section);
+          }
+        };
+    directExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            command.run();
+          }
+        };
+    queueExecutor =
+        new Executor() {
+          @Override
+          public void execute(Runnable command) {
+            pendingLoads.add(command);
+          }
+        };
+    newPager(2, 3);
+    Adapters.attach(adapter);
+    adapter.setMetricsListener(
+        new MetricsListener() {
+          @Override
+          public void onInvalidate(long durationNanos, int sectionCount, int itemCount) {}
+
+          @Override
+          public void onBind(int viewType, boolean partial, long durationNanos) {}
+
+          @Override
+          public void onNotify(NotifyType type, int positionStart, int itemCount) {
+            notifications.add(type + " " + positionStart + "+" + itemCount);
+          }
+        });
+  }
+
+  @Test
+  public void test_pages_around_item_are_loaded() {
+    // Header 0, items 1-5, header 6, items 7-9
+    assertThat(pager.getItem(0, 0)).isNull();
+    assertThat(pendingLoads).hasSize(2);
+    runPendingLoads();
+    assertThat(pager.getItem(0, 0)).isEqualTo("a0");
+    assertThat(pager.peekItem(0, 3)).isEqualTo("a3");
+    assertThat(pager.isLoaded(0, 4)).isFalse();
+    assertThat(notifications)
+        .containsExactly("ITEMS_CHANGED 1+2", "ITEMS_CHANGED 3+2")
+        .inOrder();
+  }
+
+  @Test
+  public void test_pages_are_requested_once() {
+    pager.getItem(0, 0);
+    pager.getItem(0, 1);
+    assertThat(pendingLoads).hasSize(2);
+    runPendingLoads();
+    pager.getItem(0, 1);
+    assertThat(pendingLoads).isEmpty();
+  }
+
+  @Test
+  public void test_short_page_trims_section() {
+    pager.getItem(1, 0);
+    runPendingLoads();
+    assertThat(pager.getItemCount(1)).isEqualTo(2);
+    assertThat(notifications)
+        .containsExactly("ITEMS_CHANGED 7+2", "ITEMS_REMOVED 9+1")
+        .inOrder();
+  }
+
+  @Test
+  public void test_full_page_past_estimate_grows_section() {
+    pager.getItem(0, 4);
+    runPendingLoads();
+    assertThat(pager.getItemCount(0)).isEqualTo(6);
+    assertThat(pager.peekItem(0, 5)).isEqualTo("a5");
+    assertThat(notifications)
+        .containsExactly("ITEMS_CHANGED 3+2", "ITEMS_CHANGED 5+1", "ITEMS_INSERTED 6+1")
+        .inOrder();
+  }
+
+  @Test
+  public void test_least_recently_used_page_is_dropped() {
+    newPager(1, 3).setPrefetchDistance(0);
+    pager.getItem(0, 0);
+    pager.getItem(0, 1);
+    runPendingLoads();
+    pager.peekItem(0, 0);
+    pager.getItem(0, 2);
+    pager.getItem(0, 3);
+    runPendingLoads();
+    assertThat(pager.isLoaded(0, 0)).isTrue();
+    assertThat(pager.isLoaded(0, 1)).isFalse();
+    assertThat(pager.isLoaded(0, 3)).isTrue();
+  }
+
+  @Test
+  public void test_failed_page_keeps_section_and_loads_again() {
+    failingPages.add("0:0");
+    pager.getItem(0, 0);
+    runPendingLoads();
+    assertThat(pager.isLoaded(0, 0)).isFalse();
+    assertThat(pager.isLoaded(0, 2)).isTrue();
+    assertThat(pager.getItemCount(0)).isEqualTo(5);
+    assertThat(notifications).containsExactly("ITEMS_CHANGED 3+2");
+
+    failingPages.clear();
+    pager.getItem(0, 0);
+    assertThat(pendingLoads).hasSize(1);
+    runPendingLoads();
+    assertThat(pager.getItem(0, 0)).isEqualTo("a0");
+  }
+
+  @Test
+  public void test_null_page_keeps_section() {
+    failingPages.add("1:0:null");
+    failingPages.add("1:1:null");
+    pager.getItem(1, 0);
+    runPendingLoads();
+    assertThat(pager.getItemCount(1)).isEqualTo(3);
+    assertThat(notifications).isEmpty();
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_default_prefetch_distance_needs_three_pages() {
+    newPager(2, 2);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_prefetch_distance_must_fit_in_kept_pages() {
+    pager.setPrefetchDistance(3);
+  }
+
+  private SectionedPager<String> newPager(int pageSize, int maxPagesPerSection) {
+    pager =
+        new SectionedPager<>(
+            adapter,
+            new ArraySource(),
+            pageSize,
+            maxPagesPerSection,
+            directExecutor,
+            queueExecutor);
+    pager.refresh();
+    return pager;
+  }
+
+  @Test
+  public void test_refresh_drops_pages_in_flight() {
+    pager.getItem(0, 0);
+    pager.refresh();
+    notifications.clear();
+    runPendingLoads();
+    assertThat(pager.isLoaded(0, 0)).isFalse();
+    assertThat(notifications).isEmpty();
+  }
+
+  private void runPendingLoads() {
+    while (!pendingLoads.isEmpty()) {
+      pendingLoads.remove(0).run();
+    }
+  }
+
+  private class ArraySource implements SectionedPager.Source<String> {
+
+    @Override
+    public int getSectionCount() {
+      return items.length;
+    }
+
+    @Override
+    public int getEstimatedSectionSize(int section) {
+      return section == 0 ? 5 : 3;
+    }
+
+    @Override
+    public List<String> loadPage(int section, int startPosition, int count) {
+      if (failingPages.contains(section + ":" + startPosition / count)) {
+        throw new IllegalStateException("Offline");
+      } else if (failingPages.contains(section + ":" + startPosition / count + ":null")) {
+        return null;
+      }
+      List<String> page = new ArrayList<>();
+      int end = Math.min(startPosition + count, items[section].length);
+      for (int i = startPosition; i < end; i++) {
+        page.add(items[section][i]);
+      }
+      return page;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.support.v7.widget.GridLayoutManager;
+import android.view.ViewGroup;
+import com.afollestad.sectionedrecyclerview.ItemCountCacheTest.CountingAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionedSpanSizeLookupTest {
+
+  private RowSpanAdapter adapter;
+  private GridLayoutManager.SpanSizeLookup lookup;
+
+  @Before
+  public void before() {
+    // Each section's first item takes up two spans, so rows are: A header, A 0-1, A 2-3,
+    // B header, B 0-1, B 2, C header, C 0-1, C 2-4.
+    adapter = Adapters.attach(new RowSpanAdapter(new int[] {4, 3, 5}));
+    lookup = spanSizeLookup(adapter, 3);
+  }
+
+  private static GridLayoutManager.SpanSizeLookup spanSizeLookup(
+      SectionedRecyclerViewAdapter<?> adapter, int spanCount) {
+    GridLayoutManager layoutManager = new GridLayoutManager(null, spanCount);
+    adapter.setLayoutManager(layoutManager);
+    return layoutManager.getSpanSizeLookup();
+  }
+
+  @Test
+  public void test_spans_and_rows() {
+    assertThat(lookup.getSpanIndex(2, 3)).isEqualTo(2);
+    assertThat(lookup.getSpanIndex(4, 3)).isEqualTo(1);
+    assertThat(lookup.getSpanGroupIndex(4, 3)).isEqualTo(2);
+    assertThat(lookup.getSpanGroupIndex(5, 3)).isEqualTo(3);
+    assertThat(lookup.getSpanIndex(14, 3)).isEqualTo(2);
+    assertThat(lookup.getSpanGroupIndex(14, 3)).isEqualTo(8);
+  }
+
+  @Test
+  public void test_only_queried_sections_are_walked() {
+    assertThat(lookup.getSpanIndex(12, 3)).isEqualTo(0);
+    assertThat(adapter.rowSpanCalls).isEqualTo(5);
+    assertThat(lookup.getSpanGroupIndex(12, 3)).isEqualTo(8);
+    assertThat(adapter.rowSpanCalls).isEqualTo(12);
+  }
+
+  @Test
+  public void test_only_resized_sections_are_walked_again() {
+    lookup.getSpanGroupIndex(14, 3);
+    adapter.rowSpanCalls = 0;
+
+    adapter.itemCounts[1] = 4;
+    adapter.notifyItemInsertedInSection(1, 3, 1);
+    // GridLayoutManager invalidates its span cache on every notify call.
+    lookup.invalidateSpanIndexCache();
+    assertThat(lookup.getSpanGroupIndex(13, 3)).isEqualTo(8);
+    assertThat(adapter.rowSpanCalls).isEqualTo(4);
+  }
+
+  @Test
+  public void test_changed_items_are_walked_again() {
+    lookup.getSpanIndex(2, 3);
+    adapter.rowSpanCalls = 0;
+
+    adapter.itemSpan = 3;
+    adapter.notifyItemRangeChanged(1, 4);
+    lookup.invalidateSpanIndexCache();
+    assertThat(lookup.getSpanIndex(3, 3)).isEqualTo(0);
+    assertThat(adapter.rowSpanCalls).isEqualTo(4);
+  }
+
+  @Test
+  public void test_changed_items_leave_other_sections_alone() {
+    lookup.getSpanGroupIndex(14, 3);
+    adapter.rowSpanCalls = 0;
+
+    adapter.notifyItemChanged(12);
+    lookup.invalidateSpanIndexCache();
+    assertThat(lookup.getSpanIndex(2, 3)).isEqualTo(2);
+    assertThat(lookup.getSpanIndex(7, 3)).isEqualTo(2);
+    assertThat(adapter.rowSpanCalls).isEqualTo(0);
+    assertThat(lookup.getSpanGroupIndex(14, 3)).isEqualTo(8);
+    assertThat(adapter.rowSpanCalls).isEqualTo(5);
+  }
+
+  @Test
+  public void test_moved_sections_are_walked_again() {
+    lookup.getSpanGroupIndex(14, 3);
+    adapter.rowSpanCalls = 0;
+
+    // Rows are: B header, B 0-1, B 2, C header, C 0-1, C 2-4, A header, A 0-1, A 2-3.
+    adapter.itemCounts[0] = 3;
+    adapter.itemCounts[1] = 5;
+    adapter.itemCounts[2] = 4;
+    adapter.notifySectionMoved(0, 2);
+    lookup.invalidateSpanIndexCache();
+    assertThat(lookup.getSpanGroupIndex(14, 3)).isEqualTo(8);
+    assertThat(adapter.rowSpanCalls).isEqualTo(12);
+  }
+
+  @Test
+  public void test_span_size_is_clamped() {
+    adapter.sectionRowSpan = 5;
+    assertThat(lookup.getSpanSize(1)).isEqualTo(3);
+    adapter.sectionRowSpan = 0;
+    assertThat(lookup.getSpanSize(1)).isEqualTo(1);
+    adapter.sectionRowSpan = -1;
+    adapter.itemSpan = 5;
+    assertThat(lookup.getSpanSize(2)).isEqualTo(3);
+  }
+
+  @Test
+  public void test_uniform_spans_by_default() {
+    // Rows are: A header, A 0-1, A 2, B header, B 0-1, C header.
+    CountingAdapter countingAdapter = Adapters.attach(new CountingAdapter(new int[] {3, 2, 4}));
+    GridLayoutManager.SpanSizeLookup countingLookup = spanSizeLookup(countingAdapter, 2);
+    assertThat(countingLookup.getSpanSize(1)).isEqualTo(1);
+    assertThat(countingLookup.getSpanIndex(2, 2)).isEqualTo(1);
+    assertThat(countingLookup.getSpanIndex(3, 2)).isEqualTo(0);
+    assertThat(countingLookup.getSpanGroupIndex(3, 2)).isEqualTo(2);
+    assertThat(countingLookup.getSpanGroupIndex(7, 2)).isEqualTo(5);
+  }
+
+  static class RowSpanAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    final int[] itemCounts;
+    int sectionRowSpan = -1;
+    int itemSpan = 1;
+    int rowSpanCalls;
+
+    RowSpanAdapter(int[] itemCounts) {
+      this.itemCounts = itemCounts;
+    }
+
+    @Override
+    public int getSectionCount() {
+      return itemCounts.length;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      return itemCounts[section];
+    }
+
+    @Override
+    protected int getRowSpan(
+        int fullSpanSize, int section, int relativePosition, int absolutePosition) {
+      rowSpanCalls++;
+      return relativePosition == 0 ? 2 : itemSpan;
+    }
+
+    @Override
+    protected int getSectionRowSpan(int fullSpanSize, int section) {
+      return sectionRowSpan;
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new TestView()) {};
+    }
+  }
+}
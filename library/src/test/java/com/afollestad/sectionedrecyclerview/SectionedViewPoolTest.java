@@ -0,0 +1,82 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.util.SparseIntArray;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SectionedViewPoolTest {
+
+  private static final int HEADER = SectionedRecyclerViewAdapter.VIEW_TYPE_HEADER;
+  private static final int FOOTER = SectionedRecyclerViewAdapter.VIEW_TYPE_FOOTER;
+
+  private SectionPrefetcherTest.TypedAdapter adapter;
+
+  @Before
+  public void before() {
+    // Header 0, items 1-3, footer 4, header 5, items 6-7, footer 8, header 9, item 10, footer 11,
+    // header 12, items 13-14, footer 15
+    adapter = Adapters.attach(new SectionPrefetcherTest.TypedAdapter(new int[] {3, 2, 1, 2}));
+    adapter.shouldShowFooters(true);
+  }
+
+  @Test
+  public void test_recommendation_adds_a_row_of_slack() {
+    SparseIntArray out = new SparseIntArray();
+    adapter.getRecommendedMaxRecycledViews(1, 6, 2, out);
+    assertThat(out.size()).isEqualTo(4);
+    assertThat(out.get(HEADER)).isEqualTo(2);
+    assertThat(out.get(FOOTER)).isEqualTo(2);
+    assertThat(out.get(10)).isEqualTo(5);
+    assertThat(out.get(11)).isEqualTo(3);
+  }
+
+  @Test
+  public void test_recommendation_includes_next_section_header() {
+    SparseIntArray out = new SparseIntArray();
+    adapter.getRecommendedMaxRecycledViews(1, 2, 1, out);
+    assertThat(out.size()).isEqualTo(3);
+    assertThat(out.get(10)).isEqualTo(3);
+    assertThat(out.get(HEADER)).isEqualTo(1);
+    assertThat(out.get(FOOTER)).isEqualTo(1);
+  }
+
+  @Test
+  public void test_recommendation_clamps_range() {
+    SparseIntArray out = new SparseIntArray();
+    adapter.getRecommendedMaxRecycledViews(14, 40, 1, out);
+    assertThat(out.get(13)).isEqualTo(2);
+    assertThat(out.get(FOOTER)).isEqualTo(2);
+    adapter.getRecommendedMaxRecycledViews(20, 40, 1, out);
+    assertThat(out.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void test_limits_only_grow() {
+    RecordingPool pool = new RecordingPool();
+    pool.updateMaxRecycledViews(adapter, 1, 6, 2);
+    pool.updateMaxRecycledViews(adapter, 12, 15, 1);
+    assertThat(pool.getMaxRecycledViews(HEADER)).isEqualTo(2);
+    assertThat(pool.getMaxRecycledViews(10)).isEqualTo(5);
+    assertThat(pool.getMaxRecycledViews(13)).isEqualTo(3);
+    assertThat(pool.getMaxRecycledViews(12)).isEqualTo(0);
+    // Headers and footers were already big enough, so only type 13 was raised the second time.
+    assertThat(pool.calls)
+        .containsExactly(FOOTER + "=2", HEADER + "=2", "10=5", "11=3", "13=3")
+        .inOrder();
+  }
+
+  static class RecordingPool extends SectionedViewPool {
+
+    final List<String> calls = new ArrayList<>();
+
+    /** Not passed on, since the real pool keeps its scrap in a SparseArray. */
+    @Override
+    public void setMaxRecycledViews(int viewType, int max) {
+      calls.add(viewType + "=" + max);
+    }
+  }
+}
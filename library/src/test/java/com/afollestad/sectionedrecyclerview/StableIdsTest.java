@@ -0,0 +1,129 @@
+package com.afollestad.sectionedrecyclerview;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.view.ViewGroup;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+public class StableIdsTest {
+
+  @Test
+  public void test_ids_round_trip() {
+    long id = StableIds.item(StableIds.MAX_SECTION_KEY, StableIds.MAX_ITEM_KEY);
+    assertThat(StableIds.kind(id)).isEqualTo(StableIds.KIND_ITEM);
+    assertThat(StableIds.sectionKey(id)).isEqualTo(StableIds.MAX_SECTION_KEY);
+    assertThat(StableIds.itemKey(id)).isEqualTo(StableIds.MAX_ITEM_KEY);
+
+    assertThat(StableIds.kind(StableIds.header(7))).isEqualTo(StableIds.KIND_HEADER);
+    assertThat(StableIds.sectionKey(StableIds.header(7))).isEqualTo(7);
+    assertThat(StableIds.kind(StableIds.footer(7))).isEqualTo(StableIds.KIND_FOOTER);
+    assertThat(StableIds.sectionKey(StableIds.footer(7))).isEqualTo(7);
+  }
+
+  @Test
+  public void test_ids_do_not_collide() {
+    Set<Long> ids = new HashSet<>();
+    for (int section = 0; section < 20; section++) {
+      assertThat(ids.add(StableIds.header(section))).isTrue();
+      assertThat(ids.add(StableIds.footer(section))).isTrue();
+      for (int item = 0; item < 20; item++) {
+        assertThat(ids.add(StableIds.item(section, item))).isTrue();
+      }
+    }
+    assertThat(ids).doesNotContain(-1L);
+    assertThat(StableIds.footer(StableIds.MAX_SECTION_KEY)).isNotEqualTo(-1L);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_section_key_out_of_range() {
+    StableIds.header(StableIds.MAX_SECTION_KEY + 1);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void test_negative_item_key() {
+    StableIds.item(0, -1);
+  }
+
+  @Test
+  public void test_validator_allows_same_position() {
+    StableIdValidator validator = new StableIdValidator();
+    validator.check(StableIds.header(0), 0, 1);
+    validator.check(StableIds.header(0), 0, 1);
+    validator.check(StableIds.item(0, 0), 1, 1);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void test_validator_catches_collision() {
+    StableIdValidator validator = new StableIdValidator();
+    validator.check(StableIds.item(0, 0), 1, 1);
+    validator.check(StableIds.item(0, 0), 2, 1);
+  }
+
+  @Test
+  public void test_validator_forgets_old_layouts() {
+    StableIdValidator validator = new StableIdValidator();
+    validator.check(StableIds.item(0, 0), 1, 1);
+    validator.check(StableIds.item(0, 0), 2, 2);
+    validator.reset();
+    validator.check(StableIds.item(0, 0), 3, 2);
+  }
+
+  @Test
+  public void test_validator_allows_moved_items() {
+    KeyedAdapter adapter = Adapters.attach(new KeyedAdapter(10L, 11L, 12L));
+    adapter.setStableIdCollisionCheckEnabled(true);
+    for (int position = 0; position < adapter.getItemCount(); position++) {
+      adapter.getItemId(position);
+    }
+
+    adapter.keys.add(2, adapter.keys.remove(0));
+    adapter.notifyItemMovedInSection(0, 0, 2);
+    assertThat(adapter.getItemId(1)).isEqualTo(StableIds.item(0, 11));
+    assertThat(adapter.getItemId(2)).isEqualTo(StableIds.item(0, 12));
+    assertThat(adapter.getItemId(3)).isEqualTo(StableIds.item(0, 10));
+  }
+
+  static class KeyedAdapter extends SectionedRecyclerViewAdapter<SectionedViewHolder> {
+
+    final List<Long> keys;
+
+    KeyedAdapter(Long... keys) {
+      this.keys = new ArrayList<>(Arrays.asList(keys));
+    }
+
+    @Override
+    public int getSectionCount() {
+      return 1;
+    }
+
+    @Override
+    public int getItemCount(int section) {
+      return keys.size();
+    }
+
+    @Override
+    public long getItemKey(int section, int relativePosition) {
+      return keys.get(relativePosition);
+    }
+
+    @Override
+    public void onBindHeaderViewHolder(SectionedViewHolder holder, int section, boolean expanded) {}
+
+    @Override
+    public void onBindFooterViewHolder(SectionedViewHolder holder, int section) {}
+
+    @Override
+    public void onBindViewHolder(
+        SectionedViewHolder holder, int section, int relativePosition, int absolutePosition) {}
+
+    @Override
+    public SectionedViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+      return new SectionedViewHolder(new TestView()) {};
+    }
+  }
+}
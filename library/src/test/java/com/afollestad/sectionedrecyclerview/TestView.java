@@ -0,0 +1,29 @@
+package com.afollestad.sectionedrecyclerview;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * An item view for unit tests. The mockable android.jar's View methods throw, so the layout params
+ * the adapter reads at bind time are kept here, along with how often they were set.
+ */
+class TestView extends View {
+
+  ViewGroup.LayoutParams params;
+  int setCalls;
+
+  TestView() {
+    super(null);
+  }
+
+  @Override
+  public ViewGroup.LayoutParams getLayoutParams() {
+    return params;
+  }
+
+  @Override
+  public void setLayoutParams(ViewGroup.LayoutParams params) {
+    this.params = params;
+    setCalls++;
+  }
+}
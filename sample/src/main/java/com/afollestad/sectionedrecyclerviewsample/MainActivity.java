@@ -7,6 +7,8 @@ import android.support.v7.widget.GridLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
+import com.afollestad.sectionedrecyclerview.SectionFastScroller;
+import com.afollestad.sectionedrecyclerview.StickyHeaderDecoration;
 
 /** @author Aidan Follestad (afollestad) */
 public class MainActivity extends AppCompatActivity {
@@ -29,6 +31,8 @@ public class MainActivity extends AppCompatActivity {
     adapter.shouldShowHeadersForEmptySections(hideEmpty);
     adapter.shouldShowFooters(showFooters);
     list.setAdapter(adapter);
+    new StickyHeaderDecoration<>(adapter).attachToRecyclerView(list);
+    new SectionFastScroller(adapter).attachToRecyclerView(list);
   }
 
   @Override
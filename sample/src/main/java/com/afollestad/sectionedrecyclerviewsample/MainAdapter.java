@@ -7,8 +7,10 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
+import com.afollestad.sectionedrecyclerview.SectionPayload;
 import com.afollestad.sectionedrecyclerview.SectionedRecyclerViewAdapter;
 import com.afollestad.sectionedrecyclerview.SectionedViewHolder;
+import java.util.List;
 
 /** @author Aidan Follestad (afollestad) */
 @SuppressLint("DefaultLocale")
@@ -33,12 +35,28 @@ class MainAdapter extends SectionedRecyclerViewAdapter<MainAdapter.MainVH> {
     }
   }
 
+  @Override
+  public String getSectionLabel(int section) {
+    return String.valueOf(section);
+  }
+
   @Override
   public void onBindHeaderViewHolder(MainVH holder, int section, boolean expanded) {
     holder.title.setText(String.format("Section Header %d", section));
     holder.caret.setImageResource(expanded ? R.drawable.ic_collapse : R.drawable.ic_expand);
   }
 
+  @Override
+  public void onBindHeaderViewHolder(
+      MainVH holder, int section, boolean expanded, List<Object> payloads) {
+    if (payloads.contains(SectionPayload.EXPANDED_STATE_CHANGED)) {
+      // Only the caret needs to flip, the title hasn't changed.
+      holder.caret.setImageResource(expanded ? R.drawable.ic_collapse : R.drawable.ic_expand);
+      return;
+    }
+    super.onBindHeaderViewHolder(holder, section, expanded, payloads);
+  }
+
   @Override
   public void onBindFooterViewHolder(MainVH holder, int section) {
     holder.title.setText(String.format("Section footer %d", section));